@@ -0,0 +1,62 @@
+#!/usr/bin/env bash
+# Shows that cheap read endpoints keep their latency while /ask saturates the chat bulkhead.
+#
+# Usage: ITEM_ID=1 ./eval/bulkhead-load.sh
+#   CHAT_CLIENTS  concurrent /ask loops used to saturate chat (default 20)
+#   SAMPLES       read requests per phase (default 200)
+# Run the server with KEEPKIND_VIRTUAL_THREADS=true (Java 21+) to compare against platform threads.
+set -euo pipefail
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+ITEM_ID="${ITEM_ID:-1}"
+CHAT_CLIENTS="${CHAT_CLIENTS:-20}"
+SAMPLES="${SAMPLES:-200}"
+DURATION_LIMIT="${DURATION_LIMIT:-300}"
+
+READ_URLS=("$BASE_URL/health/db" "$BASE_URL/items/$ITEM_ID/receipts?limit=5")
+
+# Prints "p50 p99 max" in ms for SAMPLES requests to one URL
+measure() {
+  local url="$1"
+  for _ in $(seq 1 "$SAMPLES"); do
+    curl -s -o /dev/null -w '%{time_total}\n' --max-time 10 "$url" || echo 10
+  done | sort -n | awk '{ v[NR] = $1 * 1000 } END {
+    printf "p50=%.1fms p99=%.1fms max=%.1fms\n", v[int(NR * 0.50)], v[int(NR * 0.99)], v[NR] }'
+}
+
+report() {
+  for url in "${READ_URLS[@]}"; do
+    printf '  %-60s %s\n' "${url#"$BASE_URL"}" "$(measure "$url")"
+  done
+}
+
+echo "== Baseline (idle)"
+report
+
+echo "== Saturating chat with $CHAT_CLIENTS concurrent /ask clients"
+STATUS_DIR=$(mktemp -d)
+PIDS=()
+for i in $(seq 1 "$CHAT_CLIENTS"); do
+  (
+    end=$((SECONDS + DURATION_LIMIT))
+    while [ "$SECONDS" -lt "$end" ]; do
+      curl -s -o /dev/null -w '%{http_code}\n' --max-time 120 \
+        "$BASE_URL/items/$ITEM_ID/ask?q=What%20should%20I%20do%20with%20this%20item%3F%20$i&k=5" || echo 000
+    done >> "$STATUS_DIR/$i"
+  ) &
+  PIDS+=($!)
+done
+trap 'kill "${PIDS[@]}" 2>/dev/null || true; rm -rf "$STATUS_DIR"' EXIT
+sleep 3
+
+echo "== Under chat saturation"
+report
+
+echo "== Bulkheads"
+curl -s "$BASE_URL/debug/ollama/bulkheads"
+echo
+
+kill "${PIDS[@]}" 2>/dev/null || true
+wait 2>/dev/null || true
+echo "== /ask status codes while saturated (200 served, 429 queue full, 503 wait timeout)"
+cat "$STATUS_DIR"/* | sort | uniq -c
@@ -0,0 +1,50 @@
+#!/usr/bin/env bash
+# First-request latency of /ask with the models unloaded (cold), loaded by a previous request
+# (warm), and right after the startup warm-up (POST /debug/ollama/warmup).
+#
+# Usage: ITEM_ID=1 ./eval/cold-warm.sh
+#   OLLAMA_URL    Ollama base URL (default http://localhost:11434)
+#   CHAT_MODEL    / EMBED_MODEL: must match keepkind.ollama.chatModel / embedModel
+#   RUNS          repetitions of each case (default 3)
+set -euo pipefail
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+OLLAMA_URL="${OLLAMA_URL:-http://localhost:11434}"
+ITEM_ID="${ITEM_ID:-1}"
+CHAT_MODEL="${CHAT_MODEL:-llama3.2:3b}"
+EMBED_MODEL="${EMBED_MODEL:-nomic-embed-text}"
+RUNS="${RUNS:-3}"
+
+unload() {
+  for model in "$CHAT_MODEL" "$EMBED_MODEL"; do
+    curl -s -o /dev/null "$OLLAMA_URL/api/generate" -d "{\"model\":\"$model\",\"keep_alive\":0}"
+  done
+  # wait until Ollama reports nothing loaded
+  for _ in $(seq 1 50); do
+    curl -s "$OLLAMA_URL/api/ps" | grep -q '"name"' || return 0
+    sleep 0.2
+  done
+}
+
+# /ask with a question nobody asked before (no query-embedding cache hit); prints seconds
+ask() {
+  curl -s -o /dev/null -w '%{time_total}\n' --max-time 300 -G "$BASE_URL/items/$ITEM_ID/ask" \
+    --data-urlencode "q=How often should I service this item? ($1 $RANDOM$RANDOM)"
+}
+
+printf '%-5s %10s %10s %12s\n' run cold_s warm_s warmed_up_s
+for i in $(seq 1 "$RUNS"); do
+  unload
+  cold=$(ask "cold $i")
+  warm=$(ask "warm $i")
+
+  unload
+  curl -s -o /dev/null -X POST "$BASE_URL/debug/ollama/warmup"
+  warmed=$(ask "after warm-up $i")
+
+  printf '%-5s %10s %10s %12s\n' "$i" "$cold" "$warm" "$warmed"
+done
+
+echo "== Last warm-up"
+curl -s "$BASE_URL/debug/ollama/warmup"
+echo
@@ -0,0 +1,20 @@
+#!/usr/bin/env bash
+# Generates N NDJSON item records (one text source each) and streams them to POST /import/items.
+#
+# Usage: ./eval/import-load.sh
+#   N   records to import (default 100000)
+# Prints the summary line (imported, failed, chunksCreated, elapsedMs, itemsPerSec).
+set -euo pipefail
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+N="${N:-100000}"
+
+awk -v n="$N" 'BEGIN {
+  for (i = 1; i <= n; i++) {
+    printf "{\"ref\":\"load-%d\",\"name\":\"Item %d\",\"category\":\"appliance\",", i, i
+    printf "\"sources\":[{\"title\":\"Care note %d\",\"text\":\"Model KK-%05d. Clean the filter every %d weeks. Replace the gasket when it cracks. Do not use abrasive cleaners on the housing.\",\"trustLevel\":\"normal\"}]}\n", i, i, (i % 8) + 1
+  }
+}' | curl -sS -N -X POST "$BASE_URL/import/items" \
+    -H "Content-Type: application/x-ndjson" \
+    --data-binary @- \
+  | tail -n 1
@@ -26,8 +26,18 @@ SOURCE_JSON=$(curl -sS --fail --max-time 10 -X POST "$BASE_URL/items/$ITEM_ID/so
 SOURCE_ID=$(echo "$SOURCE_JSON" | jq -r '.sourceId // .source_id // .id')
 test -n "$SOURCE_ID" && test "$SOURCE_ID" != "null"
 
-# Embed the source chunks
-curl -sS --fail --max-time 120 -X POST "$BASE_URL/sources/$SOURCE_ID/embed" | jq -e '.' >/dev/null
+# Embed the source chunks (background job) and wait for it to finish
+JOB_ID=$(curl -sS --fail --max-time 10 -X POST "$BASE_URL/sources/$SOURCE_ID/embed" | jq -r '.jobId')
+test -n "$JOB_ID" && test "$JOB_ID" != "null"
+for _ in $(seq 1 120); do
+  JOB_STATUS=$(curl -sS --fail --max-time 5 "$BASE_URL/jobs/$JOB_ID" | jq -r '.status')
+  case "$JOB_STATUS" in
+    done) break ;;
+    failed) echo "Embedding job $JOB_ID failed" >&2; exit 1 ;;
+  esac
+  sleep 1
+done
+test "$JOB_STATUS" = "done"
 
 # Vector search should return at least 1 result
 VEC=$(curl -sS --fail --max-time 30 "$BASE_URL/items/$ITEM_ID/vector/search?q=maintenance&k=$K")
@@ -0,0 +1,111 @@
+package com.keepkind;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/** Deterministic, realistically sized inputs shared by the benchmarks. */
+final class BenchInputs {
+
+    private static final String[] WORDS = {
+            "replace", "the", "filter", "every", "months", "check", "gasket", "torque", "to", "Nm",
+            "model", "XR-200", "do", "not", "overtighten", "warranty", "service", "interval", "clean",
+            "with", "a", "dry", "cloth", "unplug", "before", "opening", "housing", "part", "no.", "A-4471"
+    };
+
+    private BenchInputs() {}
+
+    /** Manual-like text: sentences, irregular whitespace, paragraph breaks, part numbers. */
+    static String manualText(int chars) {
+        Random rnd = new Random(7);
+        StringBuilder sb = new StringBuilder(chars + 256);
+        while (sb.length() < chars) {
+            int words = 6 + rnd.nextInt(18);
+            for (int i = 0; i < words; i++) {
+                if (i > 0) sb.append(rnd.nextInt(10) == 0 ? "  \t" : " ");
+                sb.append(WORDS[rnd.nextInt(WORDS.length)]);
+            }
+            sb.append(rnd.nextInt(8) == 0 ? ".\n\n" : ". ");
+        }
+        sb.setLength(chars);
+        return sb.toString();
+    }
+
+    /** An Ollama /api/embed response body with {@code rows} embeddings of {@code dims} floats. */
+    static byte[] embedResponse(int rows, int dims) {
+        Random rnd = new Random(11);
+        StringBuilder sb = new StringBuilder(rows * dims * 22);
+        sb.append("{\"model\":\"nomic-embed-text\",\"embeddings\":[");
+        for (int r = 0; r < rows; r++) {
+            if (r > 0) sb.append(',');
+            sb.append('[');
+            for (int d = 0; d < dims; d++) {
+                if (d > 0) sb.append(',');
+                sb.append((float) (rnd.nextGaussian() * 0.05));
+            }
+            sb.append(']');
+        }
+        sb.append("],\"total_duration\":41244375,\"load_duration\":1019500,\"prompt_eval_count\":")
+                .append(rows * 120).append('}');
+        return sb.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    /**
+     * What a 3B model actually sends back for a receipt: some preamble, the three contract lines
+     * (with a long rationale and assumption list) and trailing commentary.
+     */
+    static String receiptModelOutput() {
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("Sure! Based on the provided context, here is the decision receipt.\n\n");
+        sb.append("RECOMMENDATION: repair\n");
+        sb.append("RATIONALE: ");
+        String text = manualText(1200).replace('\n', ' ');
+        sb.append(text).append('\n');
+        sb.append("ASSUMPTIONS: the unit is still under warranty, replacement burrs are available, ")
+                .append("the motor is not damaged, the owner has basic tools, usage is about 2 cups a day, ")
+                .append("the \"XR-200\" manual applies, no water damage, local repair shops exist\n\n");
+        for (int i = 0; i < 12; i++) {
+            sb.append("Note ").append(i).append(": ").append(manualText(160).replace('\n', ' ')).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** Retrieval rows as RetrievalEngine returns them. */
+    static List<Map<String, Object>> retrievedChunks(int k) {
+        List<Map<String, Object>> out = new ArrayList<>(k);
+        for (int i = 0; i < k; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", 100_000L + i * 37);
+            row.put("source_id", 4_000L + i % 3);
+            row.put("chunk_index", i);
+            row.put("content", manualText(800));
+            row.put("distance", 0.18 + i * 0.0137);
+            out.add(row);
+        }
+        return out;
+    }
+
+    /** A receipts row as the export endpoints select it (citations/assumptions as JSON text). */
+    static Map<String, Object> receiptRow() {
+        List<Map<String, Object>> chunks = retrievedChunks(10);
+        ReceiptController.ParsedReceipt pr = ReceiptController.ParsedReceipt.parse(receiptModelOutput());
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 81_234L);
+        row.put("item_id", 512L);
+        row.put("created_at", java.sql.Timestamp.valueOf("2026-03-14 09:26:53.589793"));
+        row.put("receipt_version", 7);
+        row.put("question", "The grinder is getting loud and the grind is uneven. Should I repair it or replace it?");
+        row.put("recommendation", pr.recommendation());
+        row.put("rationale", pr.rationale());
+        row.put("citations", ReceiptController.citationsJson(chunks));
+        row.put("assumptions", ReceiptController.assumptionsJson(pr.assumptions()));
+        row.put("chat_model", "llama3.2:3b");
+        row.put("embed_model", "nomic-embed-text");
+        row.put("k_used", 10);
+        row.put("prompt_version", Prompts.RECEIPT_VERSION);
+        row.put("deleted_at", null);
+        return row;
+    }
+}
@@ -0,0 +1,44 @@
+package com.keepkind;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ChunkService#chunk} on MB-sized sources at the production settings (800 / 120), both
+ * from a String (text sources, import) and from a Reader (file uploads).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class ChunkingBenchmark {
+
+    @Param({"1", "10"})
+    public int mb;
+
+    private String text;
+    // chunk(String, ...) only needs the chunker; no database involved
+    private final ChunkService chunkService = new ChunkService(null, 500);
+
+    @Setup
+    public void setUp() {
+        text = BenchInputs.manualText(mb * 1024 * 1024);
+    }
+
+    @Benchmark
+    public List<String> chunkString() {
+        return chunkService.chunk(text, 800, 120);
+    }
+
+    @Benchmark
+    public void chunkReader(Blackhole bh) throws IOException {
+        chunkService.chunk(new StringReader(text), 800, 120, bh::consume);
+    }
+}
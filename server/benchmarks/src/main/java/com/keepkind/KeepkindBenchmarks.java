@@ -0,0 +1,28 @@
+package com.keepkind;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar: the usual JMH command line, with the GC profiler always on so
+ * every result carries gc.alloc.rate.norm (bytes allocated per operation).
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar                    # everything
+ * java -jar target/benchmarks.jar Chunking -p mb=10  # one class, one size
+ * </pre>
+ */
+public final class KeepkindBenchmarks {
+
+    private KeepkindBenchmarks() {}
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()
+        ).run();
+    }
+}
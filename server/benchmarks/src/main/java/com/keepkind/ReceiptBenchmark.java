@@ -0,0 +1,54 @@
+package com.keepkind;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-receipt CPU work around the model call: parsing a long model output, building the
+ * citations/assumptions JSON that is persisted, and rendering the Markdown export.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiptBenchmark {
+
+    private String modelOutput;
+    private List<Map<String, Object>> chunks;
+    private List<String> assumptions;
+    private Map<String, Object> row;
+
+    @Setup
+    public void setUp() {
+        modelOutput = BenchInputs.receiptModelOutput();
+        chunks = BenchInputs.retrievedChunks(10);
+        assumptions = ReceiptController.ParsedReceipt.parse(modelOutput).assumptions();
+        row = BenchInputs.receiptRow();
+    }
+
+    // ParsedReceipt is package-private; the generated JMH code lives in another package
+    @Benchmark
+    public Object parseModelOutput() {
+        return ReceiptController.ParsedReceipt.parse(modelOutput);
+    }
+
+    @Benchmark
+    public String citationsJson() {
+        return ReceiptController.citationsJson(chunks);
+    }
+
+    @Benchmark
+    public String assumptionsJson() {
+        return ReceiptController.assumptionsJson(assumptions);
+    }
+
+    @Benchmark
+    public String renderMarkdown() {
+        return ReceiptMarkdown.render(row);
+    }
+}
@@ -0,0 +1,37 @@
+package com.keepkind;
+
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding Ollama /api/embed responses of 768-dim vectors: one (a query embedding) and a full
+ * embedding batch (keepkind.ollama.embedBatchSize). Vectors go to Postgres as the float[] itself,
+ * so this is the whole per-vector representation cost left on the Java side.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorCodecBenchmark {
+
+    @Param({"1", "32"})
+    public int rows;
+
+    private byte[] body;
+    private final VectorCodec codec = new VectorCodec(JsonMapper.builder().build());
+
+    @Setup
+    public void setUp() {
+        body = BenchInputs.embedResponse(rows, 768);
+    }
+
+    @Benchmark
+    public float[][] decodeEmbeddings() {
+        return codec.decodeEmbeddings(new ByteArrayInputStream(body));
+    }
+}
@@ -1,73 +1,211 @@
 package com.keepkind;
 
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RestController
 @RequestMapping("/items/{itemId}")
-public class AskController {
+public class AskController implements DisposableBean {
 
-    private final JdbcTemplate jdbc;
+    private final RetrievalEngine retrieval;
     private final OllamaEmbeddingClient embedder;
     private final OllamaChatClient chat;
+    private final ThreadPoolExecutor streamExecutor;
+    private final RagMetrics metrics;
+    private final ContextAssembler context;
+    private final long streamTimeoutMs;
+    private final AskSingleFlight inFlight;
 
-    public AskController(JdbcTemplate jdbc, OllamaEmbeddingClient embedder, OllamaChatClient chat) {
-        this.jdbc = jdbc;
+    /** Requests that would produce the same answer; the question is compared as it is echoed back (trimmed). */
+    private record AskKey(long itemId, String question, int k, RetrievalEngine.Mode mode, Integer ef) {}
+
+    public AskController(
+            RetrievalEngine retrieval,
+            OllamaEmbeddingClient embedder,
+            OllamaChatClient chat,
+            RagMetrics metrics,
+            ContextAssembler context,
+            AskSingleFlight inFlight,
+            @Value("${keepkind.ask.streamThreads:16}") int streamThreads,
+            @Value("${keepkind.ask.streamTimeoutMs:300000}") long streamTimeoutMs
+    ) {
+        this.retrieval = retrieval;
         this.embedder = embedder;
         this.chat = chat;
+        this.inFlight = inFlight;
+        // One thread per open stream and no queue: a stream either starts now (and then waits in
+        // the chat bulkhead, which applies its own 429/503) or is refused with 503 below
+        AtomicInteger n = new AtomicInteger();
+        this.streamExecutor = new ThreadPoolExecutor(
+                Math.max(1, streamThreads), Math.max(1, streamThreads), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "ask-stream-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.streamExecutor.allowCoreThreadTimeOut(true);
+        this.metrics = metrics;
+        this.context = context;
+        this.streamTimeoutMs = streamTimeoutMs;
     }
 
     @GetMapping("/ask")
     public Map<String, Object> ask(
             @PathVariable long itemId,
             @RequestParam String q,
-            @RequestParam(defaultValue = "5") int k
+            @RequestParam(defaultValue = "5") int k,
+            @RequestParam(required = false) Integer ef,
+            @RequestParam(defaultValue = "${keepkind.retrieval.mode:vector}") String mode
     ) {
         if (q == null || q.trim().isEmpty()) throw new IllegalArgumentException("q is required");
         int topK = Math.max(1, Math.min(k, 10));
+        RetrievalEngine.Mode searchMode = RetrievalEngine.Mode.parse(mode);
+
+        // identical questions already being answered (double submits, client retries) share that answer
+        AskKey key = new AskKey(itemId, q.trim(), topK, searchMode, ef);
+        return inFlight.call(key, () -> answer(itemId, q, topK, searchMode, ef));
+    }
+
+    private Map<String, Object> answer(long itemId, String q, int topK, RetrievalEngine.Mode searchMode, Integer ef) {
+        // 1-2) Embed query, retrieve top-k chunks
+        List<Map<String, Object>> ctx = retrieve("ask", searchMode, itemId, q, topK, ef);
 
-        // 1) Embed query
-        var qVec = embedder.embedOne(q.trim());
-        String pgVec = toPgVector(qVec);
-
-        // 2) Retrieve top-k chunks
-        List<Map<String, Object>> ctx = jdbc.queryForList(
-                "SELECT id, source_id, chunk_index, content, (embedding <=> ?::vector) AS distance " +
-                "FROM chunks " +
-                "WHERE item_id = ? AND embedding IS NOT NULL " +
-                "ORDER BY embedding <=> ?::vector " +
-                "LIMIT ?",
-                pgVec, itemId, pgVec, topK
+        // 3-4) Build prompt (merged chunks within the token budget), generate answer
+        ContextAssembler.Packed packed = metrics.time("ask", RagMetrics.Stage.PROMPT, chat.model(), () -> context.pack(ctx));
+        String prompt = userPrompt(q, packed);
+        OllamaChatClient.Reply reply = metrics.time("ask", RagMetrics.Stage.LLM, chat.model(),
+                () -> chat.chatReply(Prompts.ASK_SYSTEM, prompt));
+        metrics.recordChat("ask", chat.model(), reply.stats());
+        String answer = reply.content();
+
+        // 5) Return answer + citations
+        return Map.of(
+                "itemId", itemId,
+                "question", q.trim(),
+                "answer", answer,
+                "contextUsed", packed.used().size(),
+                "contextTokens", packed.tokens(),
+                "citations", citations(packed.used())
         );
+    }
+
+    /**
+     * Same as /ask, streamed as Server-Sent Events:
+     * "citations" once retrieval is done, then "token" events as Ollama generates, then "done" with timings.
+     */
+    @GetMapping(value = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter askStream(
+            @PathVariable long itemId,
+            @RequestParam String q,
+            @RequestParam(defaultValue = "5") int k,
+            @RequestParam(required = false) Integer ef,
+            @RequestParam(defaultValue = "${keepkind.retrieval.mode:vector}") String mode
+    ) {
+        if (q == null || q.trim().isEmpty()) throw new IllegalArgumentException("q is required");
+        int topK = Math.max(1, Math.min(k, 10));
+        RetrievalEngine.Mode searchMode = RetrievalEngine.Mode.parse(mode);
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        // set once the client is gone, the emitter timed out or the stream finished
+        AtomicBoolean closed = new AtomicBoolean();
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onError(e -> closed.set(true));
+        try {
+            streamExecutor.execute(() -> stream(emitter, closed, itemId, q, topK, searchMode, ef));
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "too many open streams, retry later");
+        }
+        return emitter;
+    }
+
+    private void stream(SseEmitter emitter, AtomicBoolean closed, long itemId, String q, int topK,
+                        RetrievalEngine.Mode searchMode, Integer ef) {
+        long started = System.nanoTime();
+        try {
+            if (closed.get()) return;
+            List<Map<String, Object>> ctx = retrieve("ask_stream", searchMode, itemId, q, topK, ef);
+            long retrievedAt = System.nanoTime();
+            if (closed.get()) return;
+            ContextAssembler.Packed packed = metrics.time("ask_stream", RagMetrics.Stage.PROMPT, chat.model(), () -> context.pack(ctx));
+
+            Map<String, Object> head = new LinkedHashMap<>();
+            head.put("itemId", itemId);
+            head.put("question", q.trim());
+            head.put("contextUsed", packed.used().size());
+            head.put("contextTokens", packed.tokens());
+            head.put("citations", citations(packed.used()));
+            emitter.send(SseEmitter.event().name("citations").data(head, MediaType.APPLICATION_JSON));
+
+            String prompt = userPrompt(q, packed);
+            long[] firstTokenAt = {0};
+            long llmStarted = System.nanoTime();
+            OllamaChatClient.ChatStats stats = chat.chatStream(Prompts.ASK_SYSTEM, prompt, token -> {
+                if (firstTokenAt[0] == 0) firstTokenAt[0] = System.nanoTime();
+                // emitter timed out or failed: abort generation
+                if (closed.get()) throw new UncheckedIOException(new IOException("stream closed"));
+                try {
+                    emitter.send(SseEmitter.event().name("token").data(Map.of("text", token), MediaType.APPLICATION_JSON));
+                } catch (IOException e) {
+                    // client disconnected: abort generation
+                    throw new UncheckedIOException(e);
+                }
+            });
+            long finishedAt = System.nanoTime();
+            metrics.record("ask_stream", RagMetrics.Stage.LLM, chat.model(), finishedAt - llmStarted);
+            metrics.recordChat("ask_stream", chat.model(), stats);
 
-        // 3) Build prompt
-        StringBuilder contextBlock = new StringBuilder();
-        for (Map<String, Object> row : ctx) {
-            contextBlock.append("CHUNK ")
-                    .append(row.get("id"))
-                    .append(" (source ")
-                    .append(row.get("source_id"))
-                    .append("):\n")
-                    .append(row.get("content"))
-                    .append("\n\n");
+            Map<String, Object> done = new LinkedHashMap<>();
+            done.put("retrievalMs", (retrievedAt - started) / 1_000_000);
+            done.put("timeToFirstTokenMs", firstTokenAt[0] == 0 ? null : (firstTokenAt[0] - started) / 1_000_000);
+            done.put("totalMs", (finishedAt - started) / 1_000_000);
+            done.put("promptTokens", stats.promptEvalCount());
+            done.put("prefillMs", stats.promptEvalDurationNs() / 1_000_000);
+            done.put("completionTokens", stats.evalCount());
+            done.put("tokensPerSec", Math.round(stats.tokensPerSec() * 10) / 10.0);
+            emitter.send(SseEmitter.event().name("done").data(done, MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (Exception e) {
+            if (!closed.get()) emitter.completeWithError(e);
         }
+    }
 
-        String system = """
-                You are KeepKind. Answer using ONLY the provided context.
-                If the answer is not in the context, say: "I don't have enough information in the provided sources."
-                Do not guess. Keep it concise.
-                """;
+    @Override
+    public void destroy() throws InterruptedException {
+        streamExecutor.shutdownNow();
+        streamExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
 
-        String user = "Question:\n" + q.trim() + "\n\nContext:\n" + contextBlock;
+    private List<Map<String, Object>> retrieve(String endpoint, RetrievalEngine.Mode mode, long itemId, String q, int topK, Integer ef) {
+        float[] query = metrics.time(endpoint, RagMetrics.Stage.EMBED, embedder.model(), () -> embedder.embedQuery(q));
+        return metrics.time(endpoint, RagMetrics.Stage.RETRIEVE, embedder.model(),
+                () -> retrieval.search(mode, itemId, q.trim(), query, topK, VectorSearchController.efSearch(ef)));
+    }
 
-        // 4) Generate answer
-        String answer = chat.chat(system, user);
+    private static String userPrompt(String q, ContextAssembler.Packed packed) {
+        return Prompts.user(q, ContextAssembler.render(packed.spans()));
+    }
 
-        // 5) Return answer + citations
-        List<Map<String, Object>> citations = ctx.stream()
+    private static List<Map<String, Object>> citations(List<Map<String, Object>> ctx) {
+        return ctx.stream()
                 .map(r -> Map.of(
                         "chunkId", r.get("id"),
                         "sourceId", r.get("source_id"),
@@ -75,24 +213,5 @@ public class AskController {
                         "distance", r.get("distance")
                 ))
                 .toList();
-
-        return Map.of(
-                "itemId", itemId,
-                "question", q.trim(),
-                "answer", answer,
-                "contextUsed", ctx.size(),
-                "citations", citations
-        );
-    }
-
-    private static String toPgVector(List<Double> v) {
-        StringBuilder sb = new StringBuilder();
-        sb.append('[');
-        for (int i = 0; i < v.size(); i++) {
-            if (i > 0) sb.append(',');
-            sb.append(v.get(i));
-        }
-        sb.append(']');
-        return sb.toString();
     }
 }
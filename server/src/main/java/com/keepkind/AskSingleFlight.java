@@ -0,0 +1,16 @@
+package com.keepkind;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Coalesces identical /ask requests in flight; shared by {@link AskController} and the meters.
+ */
+@Component
+public class AskSingleFlight extends SingleFlight<Map<String, Object>> {
+
+    public AskSingleFlight() {
+        super("ask");
+    }
+}
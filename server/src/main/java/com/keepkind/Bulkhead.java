@@ -0,0 +1,102 @@
+package com.keepkind;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Concurrency limit around one Ollama operation, so slow generations cannot take every
+ * request thread with them. At most {@code maxConcurrent} calls run; up to {@code maxQueue}
+ * more wait for at most {@code maxWait}. Beyond that callers fail fast:
+ * 429 when the wait queue is full, 503 when the wait times out.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long maxWaitMs;
+    private final Semaphore permits;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong rejectedQueueFull = new AtomicLong();
+    private final AtomicLong rejectedTimeout = new AtomicLong();
+
+    public Bulkhead(String name, int maxConcurrent, int maxQueue, long maxWaitMs) {
+        this.name = name;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxWaitMs = Math.max(0, maxWaitMs);
+        this.permits = new Semaphore(this.maxConcurrent, true);
+    }
+
+    /**
+     * Runs {@code work} inside the bulkhead, rejecting with 429/503 when saturated.
+     */
+    public <T> T call(Supplier<T> work) {
+        if (!permits.tryAcquire()) {
+            if (waiting.incrementAndGet() > maxQueue) {
+                waiting.decrementAndGet();
+                rejectedQueueFull.incrementAndGet();
+                throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, name + " is saturated, retry later");
+            }
+            try {
+                if (!permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                    rejectedTimeout.incrementAndGet();
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, name + " is busy, retry later");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, name + " wait interrupted");
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+        return runHolding(work);
+    }
+
+    /**
+     * Runs {@code work} inside the bulkhead, waiting as long as it takes. For background work
+     * (embedding jobs) whose own pool already bounds how many callers there can be.
+     */
+    public <T> T callWaiting(Supplier<T> work) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(name + " wait interrupted", e);
+        }
+        return runHolding(work);
+    }
+
+    private <T> T runHolding(Supplier<T> work) {
+        calls.incrementAndGet();
+        try {
+            return work.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("name", name);
+        out.put("maxConcurrent", maxConcurrent);
+        out.put("maxQueue", maxQueue);
+        out.put("maxWaitMs", maxWaitMs);
+        out.put("active", maxConcurrent - permits.availablePermits());
+        out.put("waiting", waiting.get());
+        out.put("calls", calls.get());
+        out.put("rejectedQueueFull", rejectedQueueFull.get());
+        out.put("rejectedTimeout", rejectedTimeout.get());
+        return out;
+    }
+}
@@ -27,13 +27,15 @@ public class ChunkSearchController {
         }
         int safeLimit = Math.max(1, Math.min(limit, 50));
 
+        // websearch syntax: words are ANDed, "quoted phrase", or, -exclude; served by the GIN index.
+        // Ties break by id ascending, as in the keyword leg of hybrid search (PgVectorRetrievalEngine.fusionSql)
         return jdbc.queryForList(
-                "SELECT id, source_id, chunk_index, content " +
-                "FROM chunks " +
-                "WHERE item_id = ? AND content ILIKE ? " +
-                "ORDER BY id DESC " +
+                "SELECT c.id, c.source_id, c.chunk_index, c.content, ts_rank_cd(c.content_tsv, query) AS rank " +
+                "FROM chunks c, websearch_to_tsquery('english', ?) query " +
+                "WHERE c.item_id = ? AND c.content_tsv @@ query " +
+                "ORDER BY rank DESC, c.id " +
                 "LIMIT ?",
-                itemId, "%" + q.trim() + "%", safeLimit
+                q.trim(), itemId, safeLimit
         );
     }
 }
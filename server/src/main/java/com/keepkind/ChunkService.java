@@ -1,44 +1,174 @@
 package com.keepkind;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
 public class ChunkService {
 
+    /** One chunks row, for callers that insert chunks of many sources in one batch. */
+    public record ChunkRow(long itemId, long sourceId, int chunkIndex, String content) {}
+
+    private static final String INSERT_CHUNK =
+            "INSERT INTO chunks(item_id, source_id, chunk_index, content) VALUES (?, ?, ?, ?)";
+
     private final JdbcTemplate jdbc;
+    private final int insertBatchSize;
 
-    public ChunkService(JdbcTemplate jdbc) {
+    public ChunkService(JdbcTemplate jdbc, @Value("${keepkind.ingest.insertBatchSize:500}") int insertBatchSize) {
         this.jdbc = jdbc;
+        this.insertBatchSize = Math.max(1, insertBatchSize);
     }
 
     public List<String> chunk(String text, int chunkSize, int overlap) {
-        String t = text.trim().replaceAll("\\s+", " ");
-        if (t.isEmpty()) return List.of();
-
         List<String> out = new ArrayList<>();
-        int start = 0;
-
-        while (start < t.length()) {
-            int end = Math.min(t.length(), start + chunkSize);
-            out.add(t.substring(start, end));
-            if (end == t.length()) break;
-            start = Math.max(0, end - overlap);
-        }
+        new TextChunker(chunkSize, overlap).chunk(text, out::add);
         return out;
     }
 
-    public void insertChunks(long itemId, long sourceId, List<String> chunks) {
-        for (int i = 0; i < chunks.size(); i++) {
-            int idx = i;
-            String content = chunks.get(i);
-            jdbc.update(
-                "INSERT INTO chunks(item_id, source_id, chunk_index, content) VALUES (?, ?, ?, ?)",
-                itemId, sourceId, idx, content
+    /**
+     * Streams chunks of a large document to the consumer without holding the document in memory.
+     */
+    public void chunk(Reader in, int chunkSize, int overlap, Consumer<String> out) throws IOException {
+        new TextChunker(chunkSize, overlap).chunk(in, out);
+    }
+
+    /**
+     * Chunks a document as it is read and inserts the chunks batch by batch, so memory stays at
+     * about one batch whatever the document size. Runs in the caller's transaction.
+     *
+     * @return rows inserted
+     */
+    public int insertChunks(long itemId, long sourceId, Reader in, int chunkSize, int overlap) throws IOException {
+        List<String> batch = new ArrayList<>(insertBatchSize);
+        int[] written = {0};
+        chunk(in, chunkSize, overlap, c -> {
+            batch.add(c);
+            if (batch.size() == insertBatchSize) {
+                written[0] += insertChunks(itemId, sourceId, written[0], batch);
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) written[0] += insertChunks(itemId, sourceId, written[0], batch);
+        return written[0];
+    }
+
+    /**
+     * Inserts chunks as JDBC batches (multi-row INSERTs with reWriteBatchedInserts=true). Runs in
+     * the caller's transaction if there is one, so a failure leaves no partial source behind.
+     *
+     * @return rows inserted
+     */
+    public int insertChunks(long itemId, long sourceId, List<String> chunks) {
+        return insertChunks(itemId, sourceId, 0, chunks);
+    }
+
+    /**
+     * @param firstIndex chunk_index of chunks.get(0), for callers that insert a source in slices
+     */
+    public int insertChunks(long itemId, long sourceId, int firstIndex, List<String> chunks) {
+        jdbc.batchUpdate(
+                INSERT_CHUNK,
+                chunks,
+                insertBatchSize,
+                new ParameterizedPreparedStatementSetter<>() {
+                    private int idx = firstIndex;
+
+                    @Override
+                    public void setValues(PreparedStatement ps, String content) throws SQLException {
+                        ps.setLong(1, itemId);
+                        ps.setLong(2, sourceId);
+                        ps.setInt(3, idx++);
+                        ps.setString(4, content);
+                    }
+                }
+        );
+        // per-statement counts are SUCCESS_NO_INFO once the driver rewrites the batch
+        return chunks.size();
+    }
+
+    /**
+     * A source (on any item) with the same content that already has chunks, preferring the one with
+     * the most embedded chunks, so a copy of a document can take its chunks instead of re-chunking.
+     *
+     * @return the donor source id, or null
+     */
+    public Long findDonor(String contentHash, long excludeSourceId) {
+        List<Long> donor = jdbc.queryForList(
+                "SELECT s.id FROM sources s " +
+                        "WHERE s.content_hash = ? AND s.id <> ? " +
+                        "AND EXISTS (SELECT 1 FROM chunks c WHERE c.source_id = s.id) " +
+                        "ORDER BY (SELECT COUNT(*) FROM chunks c WHERE c.source_id = s.id AND c.embedding IS NOT NULL) DESC, s.id " +
+                        "LIMIT 1",
+                Long.class,
+                contentHash, excludeSourceId
+        );
+        return donor.isEmpty() ? null : donor.get(0);
+    }
+
+    /**
+     * {@link #findDonor} for many documents in one query.
+     *
+     * @return content hash to donor source id, for the hashes that have one
+     */
+    public Map<String, Long> findDonors(Collection<String> contentHashes) {
+        Map<String, Long> out = new HashMap<>();
+        if (contentHashes.isEmpty()) return out;
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT DISTINCT ON (s.content_hash) s.content_hash, s.id FROM sources s " +
+                            "WHERE s.content_hash = ANY(?) " +
+                            "AND EXISTS (SELECT 1 FROM chunks c WHERE c.source_id = s.id) " +
+                            "ORDER BY s.content_hash, " +
+                            "(SELECT COUNT(*) FROM chunks c WHERE c.source_id = s.id AND c.embedding IS NOT NULL) DESC, s.id"
             );
-        }
+            ps.setArray(1, con.createArrayOf("text", contentHashes.toArray()));
+            return ps;
+        }, rs -> {
+            out.put(rs.getString(1), rs.getLong(2));
+        });
+        return out;
+    }
+
+    /**
+     * Copies the donor's chunks, with any vectors they have, to another source. Runs in the
+     * caller's transaction.
+     *
+     * @return ids of the new chunks
+     */
+    public List<Long> copyChunks(long itemId, long sourceId, long donorSourceId) {
+        return jdbc.queryForList(
+                "INSERT INTO chunks(item_id, source_id, chunk_index, content, embedding) " +
+                        "SELECT ?, ?, chunk_index, content, embedding FROM chunks WHERE source_id = ? " +
+                        "RETURNING id",
+                Long.class,
+                itemId, sourceId, donorSourceId
+        );
+    }
+
+    /**
+     * @return rows inserted
+     */
+    public int insertChunkRows(List<ChunkRow> rows) {
+        jdbc.batchUpdate(INSERT_CHUNK, rows, insertBatchSize, (ps, r) -> {
+            ps.setLong(1, r.itemId());
+            ps.setLong(2, r.sourceId());
+            ps.setInt(3, r.chunkIndex());
+            ps.setString(4, r.content());
+        });
+        return rows.size();
     }
 }
@@ -0,0 +1,179 @@
+package com.keepkind;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns retrieved chunks into the prompt's context block within a token budget.
+ * <p>
+ * Chunks of the same source with consecutive chunk_index are merged into one span and the text
+ * they share (the chunker's overlap) appears once. Chunks are taken in retrieval order while the
+ * packed context still fits keepkind.context.tokenBudget (estimated as chars / charsPerToken);
+ * the best one is always kept. Each span records which chunk ids it holds and where each one's
+ * new text starts, so citations still point at exact chunks.
+ */
+@Component
+public class ContextAssembler {
+
+    /** Shortest suffix/prefix match treated as chunk overlap rather than coincidence. */
+    private static final int MIN_OVERLAP = 16;
+    /** Longest overlap looked for; the chunker's overlap is 120 chars. */
+    private static final int MAX_OVERLAP = 400;
+
+    /**
+     * @param chunkId    chunks.id
+     * @param chunkIndex position within the source
+     * @param start      offset in the span text where this chunk's non-overlapping text begins
+     * @param row        the retrieval row (id, source_id, chunk_index, content, distance)
+     */
+    public record Part(long chunkId, int chunkIndex, int start, Map<String, Object> row) {}
+
+    /** A run of consecutive chunks of one source, with the overlap between them removed. */
+    public record Span(long sourceId, List<Part> parts, String text, int bestRank) {
+
+        public int firstChunkIndex() {
+            return parts.get(0).chunkIndex();
+        }
+
+        public int lastChunkIndex() {
+            return parts.get(parts.size() - 1).chunkIndex();
+        }
+    }
+
+    /**
+     * @param spans     context spans, most relevant first
+     * @param used      retrieval rows that made it into the prompt, in retrieval order
+     * @param tokens    estimated tokens of the rendered context block
+     * @param dropped   retrieved chunks left out for lack of budget
+     */
+    public record Packed(List<Span> spans, List<Map<String, Object>> used, int tokens, int dropped) {}
+
+    private final int tokenBudget;
+    private final double charsPerToken;
+
+    public ContextAssembler(
+            @Value("${keepkind.context.tokenBudget:1536}") int tokenBudget,
+            @Value("${keepkind.context.charsPerToken:4}") double charsPerToken
+    ) {
+        this.tokenBudget = Math.max(1, tokenBudget);
+        this.charsPerToken = charsPerToken > 0 ? charsPerToken : 4;
+    }
+
+    /**
+     * @param ranked retrieval rows, best first
+     */
+    public Packed pack(List<Map<String, Object>> ranked) {
+        List<Integer> chosen = new ArrayList<>();
+        List<Span> spans = List.of();
+        for (int rank = 0; rank < ranked.size(); rank++) {
+            chosen.add(rank);
+            List<Span> candidate = merge(ranked, chosen);
+            if (rank > 0 && estimateTokens(render(candidate)) > tokenBudget) {
+                chosen.remove(chosen.size() - 1);
+                continue;
+            }
+            spans = candidate;
+        }
+
+        List<Map<String, Object>> used = new ArrayList<>(chosen.size());
+        for (int rank : chosen) used.add(ranked.get(rank));
+        return new Packed(spans, used, estimateTokens(render(spans)), ranked.size() - chosen.size());
+    }
+
+    /**
+     * Context block for the prompt. Each span is headed by the chunk ids it contains, so an
+     * answer that cites a span can be traced back to its chunks.
+     */
+    public static String render(List<Span> spans) {
+        StringBuilder sb = new StringBuilder();
+        for (Span s : spans) {
+            sb.append("CHUNK ");
+            for (int i = 0; i < s.parts().size(); i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(s.parts().get(i).chunkId());
+            }
+            sb.append(" (source ").append(s.sourceId()).append("):\n")
+                    .append(s.text())
+                    .append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    int estimateTokens(String text) {
+        return (int) Math.ceil(text.length() / charsPerToken);
+    }
+
+    private static List<Span> merge(List<Map<String, Object>> ranked, List<Integer> chosen) {
+        // group by source, then walk each source's chunks in document order
+        Map<Long, List<Integer>> bySource = new LinkedHashMap<>();
+        for (int rank : chosen) {
+            bySource.computeIfAbsent(sourceId(ranked.get(rank)), s -> new ArrayList<>()).add(rank);
+        }
+
+        List<Span> spans = new ArrayList<>();
+        for (Map.Entry<Long, List<Integer>> e : bySource.entrySet()) {
+            List<Integer> ranks = e.getValue();
+            ranks.sort(Comparator.comparingInt(r -> chunkIndex(ranked.get(r))));
+
+            List<Part> parts = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            int bestRank = Integer.MAX_VALUE;
+            int prevIndex = Integer.MIN_VALUE;
+            for (int r : ranks) {
+                Map<String, Object> row = ranked.get(r);
+                int index = chunkIndex(row);
+                String content = String.valueOf(row.get("content"));
+                if (!parts.isEmpty() && (index < 0 || index != prevIndex + 1)) {
+                    spans.add(new Span(e.getKey(), parts, text.toString(), bestRank));
+                    parts = new ArrayList<>();
+                    text = new StringBuilder();
+                    bestRank = Integer.MAX_VALUE;
+                }
+                if (parts.isEmpty()) {
+                    parts.add(new Part(chunkId(row), index, 0, row));
+                    text.append(content);
+                } else if (index != prevIndex) {
+                    int overlap = overlap(text, content);
+                    if (overlap == 0) text.append(' ');
+                    parts.add(new Part(chunkId(row), index, text.length(), row));
+                    text.append(content, overlap, content.length());
+                }
+                bestRank = Math.min(bestRank, r);
+                prevIndex = index;
+            }
+            spans.add(new Span(e.getKey(), parts, text.toString(), bestRank));
+        }
+        spans.sort(Comparator.comparingInt(Span::bestRank));
+        return spans;
+    }
+
+    /** Length of the longest suffix of {@code prev} that {@code next} starts with, or 0. */
+    static int overlap(CharSequence prev, String next) {
+        int max = Math.min(MAX_OVERLAP, Math.min(prev.length(), next.length()));
+        String tail = prev.subSequence(prev.length() - max, prev.length()).toString();
+        for (int k = max; k >= MIN_OVERLAP; k--) {
+            if (tail.regionMatches(max - k, next, 0, k)) return k;
+        }
+        return 0;
+    }
+
+    private static long sourceId(Map<String, Object> row) {
+        Object v = row.get("source_id");
+        return v instanceof Number n ? n.longValue() : -1;
+    }
+
+    private static long chunkId(Map<String, Object> row) {
+        return ((Number) row.get("id")).longValue();
+    }
+
+    private static int chunkIndex(Map<String, Object> row) {
+        Object v = row.get("chunk_index");
+        return v instanceof Number n ? n.intValue() : -1;
+    }
+}
@@ -1,9 +1,10 @@
 package com.keepkind;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -11,47 +12,25 @@ import java.util.Map;
 public class EmbeddingController {
 
     private final JdbcTemplate jdbc;
-    private final OllamaEmbeddingClient embedder;
+    private final EmbeddingJobService jobs;
 
-    public EmbeddingController(JdbcTemplate jdbc, OllamaEmbeddingClient embedder) {
+    public EmbeddingController(JdbcTemplate jdbc, EmbeddingJobService jobs) {
         this.jdbc = jdbc;
-        this.embedder = embedder;
+        this.jobs = jobs;
     }
 
+    /**
+     * Queues a background embedding job; poll GET /jobs/{jobId} for progress.
+     */
     @PostMapping("/{sourceId}/embed")
+    @ResponseStatus(HttpStatus.ACCEPTED)
     public Map<String, Object> embedSource(@PathVariable long sourceId) {
-        List<Map<String, Object>> rows = jdbc.queryForList(
-                "SELECT id, item_id, content FROM chunks WHERE source_id = ? ORDER BY chunk_index ASC",
-                sourceId
-        );
-
-        int updated = 0;
-        for (Map<String, Object> r : rows) {
-            long chunkId = ((Number) r.get("id")).longValue();
-            String content = (String) r.get("content");
-
-            var vec = embedder.embedOne(content);
-
-            // Store as pgvector literal: '[1,2,3]'
-            String pgVec = toPgVector(vec);
-
-            updated += jdbc.update(
-                    "UPDATE chunks SET embedding = ?::vector WHERE id = ?",
-                    pgVec, chunkId
-            );
+        Integer exists = jdbc.queryForObject("SELECT COUNT(*) FROM sources WHERE id = ?", Integer.class, sourceId);
+        if (exists == null || exists == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "source not found");
         }
 
-        return Map.of("sourceId", sourceId, "chunksEmbedded", updated);
-    }
-
-    private static String toPgVector(List<Double> v) {
-        StringBuilder sb = new StringBuilder();
-        sb.append('[');
-        for (int i = 0; i < v.size(); i++) {
-            if (i > 0) sb.append(',');
-            sb.append(v.get(i));
-        }
-        sb.append(']');
-        return sb.toString();
+        long jobId = jobs.enqueue(sourceId);
+        return Map.of("sourceId", sourceId, "jobId", jobId, "statusUrl", "/jobs/" + jobId);
     }
 }
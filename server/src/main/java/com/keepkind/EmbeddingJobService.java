@@ -0,0 +1,253 @@
+package com.keepkind;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background embedding jobs. The embedding_jobs table is the queue; a fixed pool of
+ * workers claims queued jobs with FOR UPDATE SKIP LOCKED and embeds only chunks whose
+ * embedding is still NULL, so a job interrupted by a crash resumes where it stopped.
+ * Chunk text already embedded with the same model (chunk_embeddings) is never sent to Ollama again.
+ */
+@Service
+public class EmbeddingJobService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingJobService.class);
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final OllamaEmbeddingClient embedder;
+    private final RetrievalEngine retrieval;
+    private final int batchSize;
+    private final int workers;
+    private final long pollMillis;
+
+    private final Semaphore wakeups = new Semaphore(0);
+    private volatile boolean running;
+    private ExecutorService pool;
+
+    public EmbeddingJobService(
+            JdbcTemplate jdbc,
+            TransactionTemplate tx,
+            OllamaEmbeddingClient embedder,
+            RetrievalEngine retrieval,
+            @Value("${keepkind.ollama.embedBatchSize:32}") int batchSize,
+            @Value("${keepkind.jobs.workers:2}") int workers,
+            @Value("${keepkind.jobs.pollMillis:5000}") long pollMillis
+    ) {
+        this.jdbc = jdbc;
+        this.tx = tx;
+        this.embedder = embedder;
+        this.retrieval = retrieval;
+        this.batchSize = Math.max(1, batchSize);
+        this.workers = Math.max(1, workers);
+        this.pollMillis = Math.max(100, pollMillis);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // Single instance: anything still "running" was cut off by a restart
+        int requeued = jdbc.update(
+                "UPDATE embedding_jobs SET status = 'queued', updated_at = now() WHERE status = 'running'"
+        );
+        if (requeued > 0) log.info("Requeued {} interrupted embedding job(s)", requeued);
+
+        AtomicInteger n = new AtomicInteger();
+        running = true;
+        pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "embed-worker-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < workers; i++) pool.submit(this::drain);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (pool == null) return;
+        pool.shutdownNow();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queues an embedding job for the source, or returns the job already queued/running for it.
+     */
+    public long enqueue(long sourceId) {
+        // the active job that blocked the insert can finish before it is read back; then insert again
+        for (int attempt = 0; attempt < 3; attempt++) {
+            List<Long> ids = jdbc.queryForList(
+                    "INSERT INTO embedding_jobs(source_id) VALUES (?) " +
+                            "ON CONFLICT (source_id) WHERE status IN ('queued', 'running') DO NOTHING " +
+                            "RETURNING id",
+                    Long.class,
+                    sourceId
+            );
+            if (ids.isEmpty()) {
+                ids = jdbc.queryForList(
+                        "SELECT id FROM embedding_jobs WHERE source_id = ? AND status IN ('queued', 'running')",
+                        Long.class,
+                        sourceId
+                );
+            }
+            if (!ids.isEmpty()) {
+                wakeups.release();
+                return ids.get(0);
+            }
+        }
+        throw new IllegalStateException("could not enqueue an embedding job for source " + sourceId);
+    }
+
+    private void drain() {
+        while (running) {
+            try {
+                List<Map<String, Object>> claimed = jdbc.queryForList(
+                        "UPDATE embedding_jobs SET status = 'running', attempts = attempts + 1, " +
+                                "started_at = now(), updated_at = now(), error = NULL " +
+                                "WHERE id = (SELECT id FROM embedding_jobs WHERE status = 'queued' " +
+                                "ORDER BY id LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+                                "RETURNING id, source_id"
+                );
+                if (claimed.isEmpty()) {
+                    wakeups.tryAcquire(pollMillis, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                long jobId = ((Number) claimed.get(0).get("id")).longValue();
+                long sourceId = ((Number) claimed.get(0).get("source_id")).longValue();
+                run(jobId, sourceId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Embedding worker error", e);
+                sleepQuietly();
+            }
+        }
+    }
+
+    private void run(long jobId, long sourceId) {
+        try {
+            Long itemId = jdbc.queryForObject("SELECT item_id FROM sources WHERE id = ?", Long.class, sourceId);
+            Integer total = jdbc.queryForObject("SELECT COUNT(*) FROM chunks WHERE source_id = ?", Integer.class, sourceId);
+            Integer done = jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM chunks WHERE source_id = ? AND embedding IS NOT NULL", Integer.class, sourceId);
+            jdbc.update(
+                    "UPDATE embedding_jobs SET total_chunks = ?, embedded_chunks = ?, embedded_at_start = ?, updated_at = now() WHERE id = ?",
+                    total, done, done, jobId
+            );
+
+            while (running) {
+                List<Map<String, Object>> batch = jdbc.queryForList(
+                        "SELECT id, content FROM chunks WHERE source_id = ? AND embedding IS NULL " +
+                                "ORDER BY chunk_index ASC LIMIT ?",
+                        sourceId, batchSize
+                );
+                if (batch.isEmpty()) break;
+                List<Long> batchIds = batch.stream().map(r -> ((Number) r.get("id")).longValue()).toList();
+
+                // 1) Reuse vectors already computed for identical chunk text (any source, same model)
+                List<String> hashes = batch.stream().map(r -> ContentHash.sha256((String) r.get("content"))).toList();
+                List<Object[]> lookups = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    lookups.add(new Object[]{embedder.model(), hashes.get(i), ((Number) batch.get(i).get("id")).longValue()});
+                }
+                int[] hit = tx.execute(status -> {
+                    int[] counts = jdbc.batchUpdate(
+                            "UPDATE chunks c SET embedding = ce.embedding FROM chunk_embeddings ce " +
+                                    "WHERE ce.embed_model = ? AND ce.content_hash = ? AND c.id = ?",
+                            lookups
+                    );
+                    int n = 0;
+                    for (int c : counts) n += Math.max(c, 0);
+                    jdbc.update(
+                            "UPDATE embedding_jobs SET embedded_chunks = embedded_chunks + ?, reused_chunks = reused_chunks + ?, " +
+                                    "updated_at = now() WHERE id = ?",
+                            n, n, jobId
+                    );
+                    return counts;
+                });
+
+                // 2) One /api/embed round trip for the distinct texts that are still missing
+                Map<String, List<Long>> missing = new LinkedHashMap<>();
+                Map<String, String> textByHash = new LinkedHashMap<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    if (hit[i] > 0) continue;
+                    missing.computeIfAbsent(hashes.get(i), h -> new ArrayList<>()).add(((Number) batch.get(i).get("id")).longValue());
+                    textByHash.putIfAbsent(hashes.get(i), (String) batch.get(i).get("content"));
+                }
+                if (missing.isEmpty()) {
+                    retrieval.onChunksEmbedded(itemId, batchIds);
+                    continue;
+                }
+
+                List<String> distinct = new ArrayList<>(missing.keySet());
+                float[][] vecs = embedder.embedBatch(distinct.stream().map(textByHash::get).toList());
+
+                // 3) Store vectors, the hash store and progress together so a restart never double counts
+                List<Object[]> chunkArgs = new ArrayList<>(batch.size());
+                List<Object[]> storeArgs = new ArrayList<>(distinct.size());
+                for (int i = 0; i < distinct.size(); i++) {
+                    // float[] is bound as a binary float4[] and cast to vector server-side
+                    storeArgs.add(new Object[]{distinct.get(i), embedder.model(), vecs[i]});
+                    for (long chunkId : missing.get(distinct.get(i))) chunkArgs.add(new Object[]{vecs[i], chunkId});
+                }
+                int written = tx.execute(status -> {
+                    int n = 0;
+                    for (int c : jdbc.batchUpdate("UPDATE chunks SET embedding = ?::vector WHERE id = ?", chunkArgs)) {
+                        n += Math.max(c, 0);
+                    }
+                    jdbc.batchUpdate(
+                            "INSERT INTO chunk_embeddings(content_hash, embed_model, embedding) VALUES (?, ?, ?::vector) " +
+                                    "ON CONFLICT DO NOTHING",
+                            storeArgs
+                    );
+                    jdbc.update(
+                            "UPDATE embedding_jobs SET embedded_chunks = embedded_chunks + ?, updated_at = now() WHERE id = ?",
+                            n, jobId
+                    );
+                    return n;
+                });
+                if (written == 0) throw new IllegalStateException("chunks vanished while embedding source " + sourceId);
+                retrieval.onChunksEmbedded(itemId, batchIds);
+            }
+
+            if (running) {
+                jdbc.update(
+                        "UPDATE embedding_jobs SET status = 'done', finished_at = now(), updated_at = now() WHERE id = ?",
+                        jobId
+                );
+            }
+        } catch (RuntimeException e) {
+            log.warn("Embedding job {} for source {} failed", jobId, sourceId, e);
+            jdbc.update(
+                    "UPDATE embedding_jobs SET status = 'failed', error = ?, finished_at = now(), updated_at = now() WHERE id = ?",
+                    String.valueOf(e.getMessage()), jobId
+            );
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(pollMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.keepkind;
 
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -9,17 +11,33 @@ import java.util.Map;
 public class EmbeddingTestController {
 
     private final OllamaEmbeddingClient embeddings;
+    private final QueryEmbeddingCache queryCache;
+    private final ReceiptCache receiptCache;
 
-    public EmbeddingTestController(OllamaEmbeddingClient embeddings) {
+    public EmbeddingTestController(OllamaEmbeddingClient embeddings, QueryEmbeddingCache queryCache, ReceiptCache receiptCache) {
         this.embeddings = embeddings;
+        this.queryCache = queryCache;
+        this.receiptCache = receiptCache;
     }
 
     @GetMapping("/embed")
     public Map<String, Object> embed(@RequestParam String text) {
-        var vec = embeddings.embedOne(text);
+        float[] vec = embeddings.embedQuery(text);
+        List<Float> head = new ArrayList<>();
+        for (int i = 0; i < Math.min(5, vec.length); i++) head.add(vec[i]);
         return Map.of(
-                "dims", vec.size(),
-                "head", vec.subList(0, Math.min(5, vec.size()))
+                "dims", vec.length,
+                "head", head
         );
     }
+
+    @GetMapping("/embed/cache")
+    public Map<String, Object> cacheStats() {
+        return queryCache.stats();
+    }
+
+    @GetMapping("/receipts/cache")
+    public Map<String, Object> receiptCacheStats() {
+        return receiptCache.stats();
+    }
 }
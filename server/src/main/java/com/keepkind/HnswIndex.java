@@ -0,0 +1,300 @@
+package com.keepkind;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical Navigable Small World graph (Malkov &amp; Yashunin) over cosine distance.
+ * Vectors are normalized on insert, so distance is {@code 1 - dot(a, b)}, the same value
+ * pgvector's {@code <=>} returns. Searches run concurrently; inserts take a write lock.
+ * Re-inserting an id replaces it and removing an id hides it; either way the old node stays in
+ * the graph for navigation only and never takes one of the k result slots.
+ */
+public class HnswIndex {
+
+    public record Hit(long id, float distance) {}
+
+    private record Cand(int node, float dist) {}
+
+    private static final Comparator<Cand> NEAREST_FIRST = Comparator.comparingDouble(Cand::dist);
+    private static final Comparator<Cand> FARTHEST_FIRST = NEAREST_FIRST.reversed();
+
+    private static final class Node {
+        final long id;
+        final float[] vec;
+        final int[][] links;
+        final int[] linkCount;
+        boolean deleted;
+
+        Node(long id, float[] vec, int level, int m) {
+            this.id = id;
+            this.vec = vec;
+            this.links = new int[level + 1][];
+            this.linkCount = new int[level + 1];
+            for (int l = 0; l <= level; l++) links[l] = new int[(l == 0 ? 2 * m : m) + 1];
+        }
+
+        int level() {
+            return links.length - 1;
+        }
+    }
+
+    private final int m;
+    private final int efConstruction;
+    private final double levelMult;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // only used under the write lock
+    private final SplittableRandom random;
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<Long, Integer> nodeById = new HashMap<>();
+    private int entry = -1;
+    private int live;
+
+    public HnswIndex(int m, int efConstruction) {
+        this(m, efConstruction, new SplittableRandom());
+    }
+
+    /** Seeded node levels, so the same inserts build the same graph. */
+    HnswIndex(int m, int efConstruction, long seed) {
+        this(m, efConstruction, new SplittableRandom(seed));
+    }
+
+    private HnswIndex(int m, int efConstruction, SplittableRandom random) {
+        this.m = Math.max(2, m);
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.levelMult = 1 / Math.log(this.m);
+        this.random = random;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Replaced and removed nodes still held in the graph; only a rebuild frees them. */
+    public int tombstones() {
+        lock.readLock().lock();
+        try {
+            return nodes.size() - live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(long id, float[] vector) {
+        float[] vec = normalized(vector);
+
+        lock.writeLock().lock();
+        try {
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelMult);
+            Integer old = nodeById.get(id);
+            if (old != null) {
+                nodes.get(old).deleted = true;
+                live--;
+            }
+
+            int idx = nodes.size();
+            Node node = new Node(id, vec, level, m);
+            nodes.add(node);
+            nodeById.put(id, idx);
+            live++;
+
+            if (entry < 0) {
+                entry = idx;
+                return;
+            }
+
+            int ep = entry;
+            int top = nodes.get(entry).level();
+            for (int l = top; l > level; l--) ep = greedy(vec, ep, l);
+
+            for (int l = Math.min(level, top); l >= 0; l--) {
+                PriorityQueue<Cand> found = searchLayer(vec, ep, efConstruction, l, false);
+                List<Cand> neighbours = selectNeighbours(found, l == 0 ? 2 * m : m);
+                for (Cand c : neighbours) {
+                    link(idx, c.node(), l);
+                    link(c.node(), idx, l);
+                }
+                ep = nearest(found).node();
+            }
+
+            if (level > top) entry = idx;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return false if the id was not in the index
+     */
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer idx = nodeById.remove(id);
+            if (idx == null) return false;
+            nodes.get(idx).deleted = true;
+            live--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param ef size of the dynamic candidate list; higher = better recall, slower
+     */
+    public List<Hit> search(float[] query, int k, int ef) {
+        float[] q = normalized(query);
+        lock.readLock().lock();
+        try {
+            if (live == 0) return List.of();
+            int ep = entry;
+            for (int l = nodes.get(entry).level(); l > 0; l--) ep = greedy(q, ep, l);
+
+            PriorityQueue<Cand> found = searchLayer(q, ep, Math.max(ef, k), 0, true);
+            List<Cand> sorted = new ArrayList<>(found);
+            sorted.sort(NEAREST_FIRST);
+
+            List<Hit> out = new ArrayList<>(Math.min(k, sorted.size()));
+            for (Cand c : sorted) {
+                out.add(new Hit(nodes.get(c.node()).id, c.dist()));
+                if (out.size() == k) break;
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int greedy(float[] q, int ep, int level) {
+        float best = distance(q, nodes.get(ep).vec);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            Node n = nodes.get(ep);
+            for (int i = 0; i < n.linkCount[level]; i++) {
+                int nb = n.links[level][i];
+                float d = distance(q, nodes.get(nb).vec);
+                if (d < best) {
+                    best = d;
+                    ep = nb;
+                    improved = true;
+                }
+            }
+        }
+        return ep;
+    }
+
+    /**
+     * @param liveOnly leave deleted nodes out of the results (they are still traversed), so a
+     *                 query gets ef live nodes however many replaced or removed ones are nearby
+     * @return up to ef nearest nodes found from ep on this layer, as a max-heap (farthest on top)
+     */
+    private PriorityQueue<Cand> searchLayer(float[] q, int ep, int ef, int level, boolean liveOnly) {
+        BitSet visited = new BitSet(nodes.size());
+        visited.set(ep);
+        Cand start = new Cand(ep, distance(q, nodes.get(ep).vec));
+
+        PriorityQueue<Cand> candidates = new PriorityQueue<>(NEAREST_FIRST);
+        PriorityQueue<Cand> results = new PriorityQueue<>(FARTHEST_FIRST);
+        candidates.add(start);
+        if (!liveOnly || !nodes.get(ep).deleted) results.add(start);
+
+        while (!candidates.isEmpty()) {
+            Cand c = candidates.poll();
+            if (results.size() >= ef && c.dist() > results.peek().dist()) break;
+
+            Node n = nodes.get(c.node());
+            for (int i = 0; i < n.linkCount[level]; i++) {
+                int nb = n.links[level][i];
+                if (visited.get(nb)) continue;
+                visited.set(nb);
+                float d = distance(q, nodes.get(nb).vec);
+                if (results.size() < ef || d < results.peek().dist()) {
+                    Cand next = new Cand(nb, d);
+                    candidates.add(next);
+                    if (liveOnly && nodes.get(nb).deleted) continue;
+                    results.add(next);
+                    if (results.size() > ef) results.poll();
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour-selection heuristic: keep a candidate only if it is closer to the new node than
+     * to any neighbour already kept, which spreads links across clusters.
+     */
+    private List<Cand> selectNeighbours(PriorityQueue<Cand> found, int max) {
+        List<Cand> sorted = new ArrayList<>(found);
+        sorted.sort(NEAREST_FIRST);
+        List<Cand> kept = new ArrayList<>(max);
+        for (Cand c : sorted) {
+            if (kept.size() >= max) break;
+            float[] v = nodes.get(c.node()).vec;
+            boolean diverse = true;
+            for (Cand k : kept) {
+                if (distance(v, nodes.get(k.node()).vec) < c.dist()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) kept.add(c);
+        }
+        return kept;
+    }
+
+    private void link(int from, int to, int level) {
+        Node n = nodes.get(from);
+        int max = level == 0 ? 2 * m : m;
+        n.links[level][n.linkCount[level]++] = to;
+        if (n.linkCount[level] <= max) return;
+
+        // Over capacity: keep the closest max links
+        PriorityQueue<Cand> all = new PriorityQueue<>(FARTHEST_FIRST);
+        for (int i = 0; i < n.linkCount[level]; i++) {
+            int nb = n.links[level][i];
+            all.add(new Cand(nb, distance(n.vec, nodes.get(nb).vec)));
+        }
+        while (all.size() > max) all.poll();
+        n.linkCount[level] = 0;
+        for (Cand c : all) n.links[level][n.linkCount[level]++] = c.node();
+    }
+
+    private static Cand nearest(PriorityQueue<Cand> heap) {
+        Cand best = null;
+        for (Cand c : heap) {
+            if (best == null || c.dist() < best.dist()) best = c;
+        }
+        return best;
+    }
+
+    private static float distance(float[] a, float[] b) {
+        float dot = 0;
+        for (int i = 0; i < a.length; i++) dot += a[i] * b[i];
+        return 1 - dot;
+    }
+
+    private static float[] normalized(float[] v) {
+        double norm = 0;
+        for (float x : v) norm += x * x;
+        norm = Math.sqrt(norm);
+        float[] out = new float[v.length];
+        if (norm == 0) return out;
+        for (int i = 0; i < v.length; i++) out[i] = (float) (v[i] / norm);
+        return out;
+    }
+}
@@ -0,0 +1,286 @@
+package com.keepkind;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * In-memory HNSW retrieval, one graph per item_id. Built from the chunks table at startup
+ * (in the background; queries go to pgvector until it is ready) and updated as embedding
+ * jobs commit. Postgres is still used to fetch chunk text for the hits, by primary key.
+ * <p>
+ * Re-embedded and deleted chunks leave tombstones in the graph. Once they pass
+ * keepkind.retrieval.hnsw.rebuildDeletedFraction of an item's nodes, that item's graph is
+ * rebuilt from the chunks table in the background and swapped in.
+ */
+@Component
+@ConditionalOnProperty(name = "keepkind.retrieval.engine", havingValue = "hnsw")
+public class HnswRetrievalEngine implements RetrievalEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(HnswRetrievalEngine.class);
+    /** Searches per query when hits turn out to be deleted chunks; each one evicts what it found. */
+    private static final int MAX_SEARCH_ATTEMPTS = 3;
+    /** Below this many tombstones a graph is not worth rebuilding, whatever the fraction. */
+    private static final int MIN_TOMBSTONES_TO_REBUILD = 100;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final PgVectorRetrievalEngine fallback;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int candidates;
+    private final int rrfK;
+    private final double rebuildDeletedFraction;
+
+    private final Map<Long, HnswIndex> byItem = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // Serializes changes to the graphs with a rebuild's final catch-up and swap
+    private final Object writes = new Object();
+    // item -> chunk ids changed while its graph is being rebuilt; guarded by writes
+    private final Map<Long, Set<Long>> changedDuringRebuild = new HashMap<>();
+    private final ExecutorService rebuilds = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "hnsw-rebuild");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public HnswRetrievalEngine(
+            JdbcTemplate jdbc,
+            TransactionTemplate tx,
+            @Value("${keepkind.retrieval.hnsw.m:16}") int m,
+            @Value("${keepkind.retrieval.hnsw.efConstruction:100}") int efConstruction,
+            @Value("${keepkind.retrieval.hnsw.efSearch:64}") int efSearch,
+            @Value("${keepkind.retrieval.hnsw.rebuildDeletedFraction:0.2}") double rebuildDeletedFraction,
+            @Value("${keepkind.retrieval.pgvector.efSearch:40}") int pgEfSearch,
+            @Value("${keepkind.retrieval.pgvector.probes:1}") int pgProbes,
+            @Value("${keepkind.retrieval.pgvector.iterativeScan:strict_order}") String pgIterativeScan,
+            @Value("${keepkind.retrieval.hybrid.candidates:40}") int candidates,
+            @Value("${keepkind.retrieval.hybrid.rrfK:60}") int rrfK
+    ) {
+        this.jdbc = jdbc;
+        this.tx = tx;
+        this.fallback = new PgVectorRetrievalEngine(jdbc, tx, pgEfSearch, pgProbes, pgIterativeScan, candidates, rrfK);
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.candidates = candidates;
+        this.rrfK = rrfK;
+        this.rebuildDeletedFraction = rebuildDeletedFraction;
+    }
+
+    @Override
+    public String name() {
+        return ready ? "hnsw" : "hnsw (building, using pgvector)";
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        Thread t = new Thread(() -> {
+            long started = System.nanoTime();
+            try {
+                int loaded = load(this::indexFor, "");
+                ready = true;
+                log.info("HNSW index built: {} chunks, {} items in {} ms",
+                        loaded, byItem.size(), (System.nanoTime() - started) / 1_000_000);
+            } catch (RuntimeException e) {
+                log.error("HNSW index build failed; retrieval stays on pgvector", e);
+            }
+        }, "hnsw-build");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Adds every embedded chunk matching {@code and} (an SQL condition starting with AND, or empty)
+     * to the index {@code indexes} returns for its item.
+     *
+     * @return chunks loaded
+     */
+    private int load(Function<Long, HnswIndex> indexes, String and, Object... args) {
+        // Server-side cursor: needs a transaction and a fetch size
+        JdbcTemplate cursor = new JdbcTemplate(jdbc.getDataSource());
+        cursor.setFetchSize(1000);
+        int[] loaded = {0};
+        tx.executeWithoutResult(status -> cursor.query(
+                "SELECT id, item_id, embedding::real[] AS embedding FROM chunks WHERE embedding IS NOT NULL " + and,
+                rs -> {
+                    indexes.apply(rs.getLong("item_id")).add(rs.getLong("id"), vector(rs));
+                    loaded[0]++;
+                },
+                args
+        ));
+        return loaded[0];
+    }
+
+    @Override
+    public List<Map<String, Object>> search(long itemId, float[] query, int k, Integer ef) {
+        if (!ready) return fallback.search(itemId, query, k, ef);
+
+        for (int attempt = 1; ; attempt++) {
+            // looked up each time: a rebuild may have swapped the graph
+            HnswIndex index = byItem.get(itemId);
+            if (index == null) return List.of();
+            List<HnswIndex.Hit> hits = index.search(query, k, ef != null ? ef : efSearch);
+            if (hits.isEmpty()) return List.of();
+
+            Long[] ids = hits.stream().map(HnswIndex.Hit::id).toArray(Long[]::new);
+            Map<Long, Map<String, Object>> rows = new HashMap<>();
+            for (Map<String, Object> r : jdbc.queryForList(
+                    "SELECT id, source_id, chunk_index, content FROM chunks WHERE id = ANY(?::bigint[])",
+                    (Object) ids)) {
+                rows.put(((Number) r.get("id")).longValue(), r);
+            }
+
+            List<Map<String, Object>> out = new ArrayList<>(hits.size());
+            int missing = 0;
+            for (HnswIndex.Hit h : hits) {
+                Map<String, Object> r = rows.get(h.id());
+                if (r == null) {
+                    // chunk deleted since it was indexed: drop it from the graph
+                    onChunksDeleted(itemId, List.of(h.id()));
+                    missing++;
+                    continue;
+                }
+                r.put("distance", (double) h.distance());
+                out.add(r);
+            }
+            // search again so the next live chunks fill the k slots
+            if (missing == 0 || attempt == MAX_SEARCH_ATTEMPTS) return out;
+        }
+    }
+
+    /**
+     * Vector ranking from the graph, passed to the same fusion query as pgvector uses, so
+     * keyword ranking, fusion and row fetch are still a single round trip.
+     */
+    @Override
+    public List<Map<String, Object>> hybridSearch(long itemId, String text, float[] query, int k, Integer ef) {
+        if (!ready) return fallback.hybridSearch(itemId, text, query, k, ef);
+
+        int n = Math.max(k, candidates);
+        HnswIndex index = byItem.get(itemId);
+        Long[] ids = index == null
+                ? new Long[0]
+                : index.search(query, n, Math.max(n, ef != null ? ef : efSearch)).stream().map(HnswIndex.Hit::id).toArray(Long[]::new);
+        return jdbc.queryForList(
+                PgVectorRetrievalEngine.fusionSql("SELECT id, r FROM unnest(?::bigint[]) WITH ORDINALITY AS v(id, r)"),
+                ids,
+                text, itemId, n, query, rrfK, rrfK, k
+        );
+    }
+
+    @Override
+    public void onChunksEmbedded(long itemId, List<Long> chunkIds) {
+        if (chunkIds.isEmpty()) return;
+        HnswIndex index;
+        synchronized (writes) {
+            index = indexFor(itemId);
+            sync(index, chunkIds);
+            changed(itemId, chunkIds);
+        }
+        rebuildIfSparse(itemId, index);
+    }
+
+    @Override
+    public void onChunksDeleted(long itemId, List<Long> chunkIds) {
+        HnswIndex index;
+        synchronized (writes) {
+            index = byItem.get(itemId);
+            if (index == null) return;
+            for (long id : chunkIds) index.remove(id);
+            changed(itemId, chunkIds);
+        }
+        rebuildIfSparse(itemId, index);
+    }
+
+    /** Brings these chunks of the index in line with the chunks table: (re)added if embedded, else removed. */
+    private void sync(HnswIndex index, Collection<Long> chunkIds) {
+        Set<Long> absent = new HashSet<>(chunkIds);
+        jdbc.query(
+                "SELECT id, embedding::real[] AS embedding FROM chunks WHERE id = ANY(?::bigint[]) AND embedding IS NOT NULL",
+                rs -> {
+                    index.add(rs.getLong("id"), vector(rs));
+                    absent.remove(rs.getLong("id"));
+                },
+                (Object) chunkIds.toArray(new Long[0])
+        );
+        for (long id : absent) index.remove(id);
+    }
+
+    private void changed(long itemId, Collection<Long> chunkIds) {
+        Set<Long> pending = changedDuringRebuild.get(itemId);
+        if (pending != null) pending.addAll(chunkIds);
+    }
+
+    private void rebuildIfSparse(long itemId, HnswIndex index) {
+        if (!ready || rebuildDeletedFraction <= 0) return;
+        int dead = index.tombstones();
+        if (dead < MIN_TOMBSTONES_TO_REBUILD || dead <= rebuildDeletedFraction * (dead + index.size())) return;
+        synchronized (writes) {
+            if (changedDuringRebuild.containsKey(itemId)) return;
+            changedDuringRebuild.put(itemId, new HashSet<>());
+        }
+        rebuilds.execute(() -> rebuild(itemId, dead));
+    }
+
+    /**
+     * Builds a fresh graph for the item off to the side (searches keep using the old one), then
+     * replays chunks that changed meanwhile and swaps it in.
+     */
+    private void rebuild(long itemId, int tombstones) {
+        long started = System.nanoTime();
+        try {
+            HnswIndex fresh = new HnswIndex(m, efConstruction);
+            load(id -> fresh, "AND item_id = ?", itemId);
+            synchronized (writes) {
+                Set<Long> pending = changedDuringRebuild.get(itemId);
+                if (!pending.isEmpty()) sync(fresh, pending);
+                byItem.put(itemId, fresh);
+            }
+            log.info("HNSW index of item {} rebuilt: {} chunks, {} tombstones dropped in {} ms",
+                    itemId, fresh.size(), tombstones, (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("HNSW index rebuild of item {} failed; keeping the current graph", itemId, e);
+        } finally {
+            synchronized (writes) {
+                changedDuringRebuild.remove(itemId);
+            }
+        }
+    }
+
+    private HnswIndex indexFor(long itemId) {
+        return byItem.computeIfAbsent(itemId, id -> new HnswIndex(m, efConstruction));
+    }
+
+    private static float[] vector(ResultSet rs) throws SQLException {
+        Array arr = rs.getArray("embedding");
+        Float[] boxed = (Float[]) arr.getArray();
+        float[] v = new float[boxed.length];
+        for (int i = 0; i < v.length; i++) v[i] = boxed[i];
+        arr.free();
+        return v;
+    }
+}
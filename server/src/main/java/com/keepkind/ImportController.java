@@ -0,0 +1,407 @@
+package com.keepkind;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.*;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk import of items with their text sources from newline-delimited JSON, one record per line:
+ * <pre>
+ * {"ref":"optional client key","name":"Coffee grinder","category":"appliance",
+ *  "sources":[{"title":"Care note","text":"...","trustLevel":"high"}]}
+ * </pre>
+ * Records are grouped into batches; each batch gets its ids from the sequences in one query and
+ * is written with JDBC batches in its own transaction, several batches at a time. One result line
+ * per record is streamed back as its batch commits (in completion order, tagged with the input
+ * line number), followed by a summary line.
+ */
+@RestController
+@RequestMapping("/import")
+public class ImportController {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportController.class);
+
+    public record ImportSource(String title, String text, String trustLevel) {}
+
+    public record ImportRecord(String ref, String name, String category, List<ImportSource> sources) {}
+
+    private record Parsed(int line, ImportRecord record) {}
+
+    private record Pending(List<Parsed> batch, Future<?> result) {}
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ChunkService chunkService;
+    private final EmbeddingJobService embeddingJobs;
+    private final RetrievalEngine retrieval;
+    private final ObjectMapper mapper;
+    private final int batchSize;
+    private final int parallelism;
+    private final boolean autoEmbed;
+
+    public ImportController(
+            JdbcTemplate jdbc,
+            TransactionTemplate tx,
+            ChunkService chunkService,
+            EmbeddingJobService embeddingJobs,
+            RetrievalEngine retrieval,
+            ObjectMapper mapper,
+            @Value("${keepkind.import.batchSize:500}") int batchSize,
+            @Value("${keepkind.import.parallelism:4}") int parallelism,
+            @Value("${keepkind.jobs.autoEmbed:false}") boolean autoEmbed
+    ) {
+        this.jdbc = jdbc;
+        this.tx = tx;
+        this.chunkService = chunkService;
+        this.embeddingJobs = embeddingJobs;
+        this.retrieval = retrieval;
+        this.mapper = mapper;
+        this.batchSize = Math.max(1, batchSize);
+        this.parallelism = Math.max(1, parallelism);
+        this.autoEmbed = autoEmbed;
+    }
+
+    @PostMapping(value = "/items", consumes = {"application/x-ndjson", "application/json", "text/plain"})
+    public void importItems(
+            InputStream body,
+            @RequestParam(required = false) Boolean embed,
+            HttpServletResponse response
+    ) throws IOException {
+        boolean embedSources = embed != null ? embed : autoEmbed;
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        Output out = new Output(response.getOutputStream());
+
+        // Bounded parallelism with backpressure: when all workers are busy and the queue is full,
+        // the request thread writes the next batch itself instead of reading further ahead
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(
+                parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parallelism),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        AtomicInteger ok = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger chunks = new AtomicInteger();
+        AtomicInteger reusedChunks = new AtomicInteger();
+        long started = System.nanoTime();
+        int lines = 0;
+        List<Pending> pending = new ArrayList<>();
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            List<Parsed> batch = new ArrayList<>(batchSize);
+            // once the client is gone nothing more is read or submitted
+            for (String line; !out.closed() && (line = reader.readLine()) != null; ) {
+                lines++;
+                if (line.isBlank()) continue;
+                Parsed p = parse(lines, line, out, failed);
+                if (p == null) continue;
+                batch.add(p);
+                if (batch.size() == batchSize) {
+                    List<Parsed> full = batch;
+                    pending.add(new Pending(full, workers.submit(() -> write(full, embedSources, out, ok, failed, chunks, reusedChunks))));
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty() && !out.closed()) {
+                List<Parsed> last = batch;
+                pending.add(new Pending(last, workers.submit(() -> write(last, embedSources, out, ok, failed, chunks, reusedChunks))));
+            }
+        } finally {
+            workers.shutdown();
+            try {
+                workers.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // write() reports its own failures; anything that still escaped a batch is reported here
+        for (Pending p : pending) {
+            try {
+                p.result().get();
+            } catch (ExecutionException e) {
+                log.warn("Import batch of {} records failed", p.batch().size(), e.getCause());
+                failed.addAndGet(p.batch().size());
+                for (Parsed r : p.batch()) out.emit(error(r.line(), r.record().ref(), "batch failed: " + e.getCause().getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - started;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("done", true);
+        summary.put("lines", lines);
+        summary.put("imported", ok.get());
+        summary.put("failed", failed.get());
+        summary.put("chunksCreated", chunks.get());
+        summary.put("chunksReused", reusedChunks.get());
+        summary.put("elapsedMs", elapsedNanos / 1_000_000);
+        summary.put("itemsPerSec", elapsedNanos == 0 ? 0 : Math.round(ok.get() * 1e9 / elapsedNanos));
+        out.emit(summary);
+        if (out.closed()) {
+            log.info("Import stopped, client disconnected: {} items, {} failed, {} chunks after {} lines in {} ms",
+                    ok.get(), failed.get(), chunks.get(), lines, elapsedNanos / 1_000_000);
+        } else {
+            log.info("Import: {} items, {} failed, {} chunks in {} ms", ok.get(), failed.get(), chunks.get(), elapsedNanos / 1_000_000);
+        }
+    }
+
+    private Parsed parse(int line, String json, Output out, AtomicInteger failed) {
+        ImportRecord r;
+        try {
+            r = mapper.readValue(json, ImportRecord.class);
+        } catch (JacksonException e) {
+            failed.incrementAndGet();
+            out.emit(error(line, null, "invalid JSON: " + e.getOriginalMessage()));
+            return null;
+        }
+        if (r == null) {
+            failed.incrementAndGet();
+            out.emit(error(line, null, "record must be an object"));
+            return null;
+        }
+        String problem = null;
+        if (r.name() == null || r.name().isBlank()) problem = "name is required";
+        else if (r.sources() != null) {
+            for (ImportSource s : r.sources()) {
+                if (s == null || s.text() == null || s.text().isBlank()) {
+                    problem = "every source needs text";
+                    break;
+                }
+            }
+        }
+        if (problem != null) {
+            failed.incrementAndGet();
+            out.emit(error(line, r.ref(), problem));
+            return null;
+        }
+        return new Parsed(line, r);
+    }
+
+    /** A source whose document already has chunks elsewhere: copy them instead of chunking. */
+    private record Copy(int record, long itemId, long sourceId, long donorSourceId, String text) {}
+
+    /**
+     * One transaction per batch: ids come from nextval() in a single query per table, so rows
+     * can reference each other without per-row generated-key lookups. Sources get the same
+     * content-hash dedup as SourceController: a text repeated within a record is stored once, and
+     * a document that already has chunks (on any item) gets those copied, vectors included,
+     * instead of being chunked and embedded again.
+     */
+    private void write(List<Parsed> batch, boolean embedSources, Output out,
+                       AtomicInteger ok, AtomicInteger failed, AtomicInteger chunks, AtomicInteger reusedChunks) {
+        if (out.closed()) return; // queued before the client went away
+        // Each record's distinct documents by content hash
+        List<Map<String, ImportSource>> docs = new ArrayList<>(batch.size());
+        Set<String> hashes = new HashSet<>();
+        int sourceCount = 0;
+        for (Parsed p : batch) {
+            Map<String, ImportSource> byHash = new LinkedHashMap<>();
+            if (p.record().sources() != null) {
+                for (ImportSource s : p.record().sources()) byHash.putIfAbsent(ContentHash.sha256(s.text()), s);
+            }
+            docs.add(byHash);
+            hashes.addAll(byHash.keySet());
+            sourceCount += byHash.size();
+        }
+
+        int sources = sourceCount;
+        List<Map<String, Object>> results;
+        List<Long> allSourceIds = new ArrayList<>(sources);
+        Map<Long, List<Long>> reusedByItem = new HashMap<>();
+        try {
+            // Chunking is CPU work: do it before taking a transaction, once per document
+            Map<String, Long> donors = chunkService.findDonors(hashes);
+            Map<String, List<String>> chunked = new HashMap<>();
+            for (Map<String, ImportSource> byHash : docs) {
+                for (Map.Entry<String, ImportSource> d : byHash.entrySet()) {
+                    if (donors.containsKey(d.getKey())) continue;
+                    chunked.computeIfAbsent(d.getKey(), h -> chunkService.chunk(d.getValue().text(), 800, 120));
+                }
+            }
+
+            results = tx.execute(status -> {
+                List<Long> itemIds = nextIds("items", batch.size());
+                List<Long> sourceIds = nextIds("sources", sources);
+
+                List<Object[]> itemRows = new ArrayList<>(batch.size());
+                List<Object[]> sourceRows = new ArrayList<>(sources);
+                List<ChunkService.ChunkRow> chunkRows = new ArrayList<>();
+                List<Copy> copies = new ArrayList<>();
+                List<List<Long>> idsPerRecord = new ArrayList<>(batch.size());
+                int[] created = new int[batch.size()];
+                int[] reused = new int[batch.size()];
+                int s = 0;
+                for (int i = 0; i < batch.size(); i++) {
+                    ImportRecord r = batch.get(i).record();
+                    long itemId = itemIds.get(i);
+                    itemRows.add(new Object[]{itemId, r.name().trim(), r.category()});
+
+                    List<Long> ids = new ArrayList<>();
+                    for (Map.Entry<String, ImportSource> d : docs.get(i).entrySet()) {
+                        ImportSource src = d.getValue();
+                        long sourceId = sourceIds.get(s++);
+                        String uri = (src.title() == null || src.title().isBlank()) ? "text-source" : src.title().trim();
+                        String trust = (src.trustLevel() == null || src.trustLevel().isBlank()) ? "normal" : src.trustLevel().trim();
+                        sourceRows.add(new Object[]{sourceId, itemId, uri, trust, d.getKey()});
+                        Long donor = donors.get(d.getKey());
+                        if (donor != null) {
+                            copies.add(new Copy(i, itemId, sourceId, donor, src.text()));
+                        } else {
+                            created[i] += addChunkRows(chunkRows, itemId, sourceId, chunked.get(d.getKey()));
+                        }
+                        ids.add(sourceId);
+                    }
+                    idsPerRecord.add(ids);
+                }
+
+                jdbc.batchUpdate("INSERT INTO items(id, name, category) VALUES (?, ?, ?)", itemRows);
+                if (!sourceRows.isEmpty()) {
+                    jdbc.batchUpdate(
+                            "INSERT INTO sources(id, item_id, type, uri, trust_level, content_hash) VALUES (?, ?, 'text', ?, ?, ?)",
+                            sourceRows
+                    );
+                }
+                for (Copy c : copies) {
+                    List<Long> copied = chunkService.copyChunks(c.itemId(), c.sourceId(), c.donorSourceId());
+                    if (copied.isEmpty()) {
+                        // the donor lost its chunks since the lookup
+                        created[c.record()] += addChunkRows(chunkRows, c.itemId(), c.sourceId(), chunkService.chunk(c.text(), 800, 120));
+                    } else {
+                        reused[c.record()] += copied.size();
+                        reusedByItem.computeIfAbsent(c.itemId(), id -> new ArrayList<>()).addAll(copied);
+                    }
+                }
+                chunks.addAndGet(chunkService.insertChunkRows(chunkRows));
+                allSourceIds.addAll(sourceIds);
+
+                List<Map<String, Object>> res = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("line", batch.get(i).line());
+                    if (batch.get(i).record().ref() != null) row.put("ref", batch.get(i).record().ref());
+                    row.put("itemId", itemIds.get(i));
+                    row.put("sourceIds", idsPerRecord.get(i));
+                    row.put("chunksCreated", created[i]);
+                    row.put("chunksReused", reused[i]);
+                    res.add(row);
+                }
+                return res;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Import batch of {} records failed", batch.size(), e);
+            failed.addAndGet(batch.size());
+            for (Parsed p : batch) out.emit(error(p.line(), p.record().ref(), "batch failed: " + e.getMessage()));
+            return;
+        }
+
+        // The batch is committed: a failure from here on is reported on its rows, not as a failed import
+        try {
+            for (Map.Entry<Long, List<Long>> e : reusedByItem.entrySet()) {
+                reusedChunks.addAndGet(e.getValue().size());
+                retrieval.onChunksEmbedded(e.getKey(), e.getValue());
+            }
+            if (embedSources) {
+                for (long sourceId : allSourceIds) embeddingJobs.enqueue(sourceId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Import batch of {} records committed, follow-up failed", batch.size(), e);
+            for (Map<String, Object> r : results) r.put("error", "imported, but indexing/embedding was not queued: " + e.getMessage());
+        }
+        ok.addAndGet(batch.size());
+        for (Map<String, Object> r : results) out.emit(r);
+        out.flush();
+    }
+
+    private static int addChunkRows(List<ChunkService.ChunkRow> rows, long itemId, long sourceId, List<String> parts) {
+        for (int c = 0; c < parts.size(); c++) rows.add(new ChunkService.ChunkRow(itemId, sourceId, c, parts.get(c)));
+        return parts.size();
+    }
+
+    private List<Long> nextIds(String table, int n) {
+        if (n == 0) return List.of();
+        return jdbc.queryForList(
+                "SELECT nextval(pg_get_serial_sequence(?, 'id')) FROM generate_series(1, ?)",
+                Long.class,
+                table, n
+        );
+    }
+
+    private static Map<String, Object> error(int line, String ref, String message) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("line", line);
+        if (ref != null) row.put("ref", ref);
+        row.put("error", message);
+        return row;
+    }
+
+    /** Result lines from several batch workers, one JSON object per line. */
+    /**
+     * The response stream. The first write failure (the client went away) closes it: later rows
+     * are dropped instead of failing every batch that reports after it.
+     */
+    private final class Output {
+        private final OutputStream out;
+        private volatile boolean closed;
+
+        Output(OutputStream out) {
+            this.out = out;
+        }
+
+        boolean closed() {
+            return closed;
+        }
+
+        synchronized void emit(Map<String, Object> row) {
+            if (closed) return;
+            try {
+                out.write(mapper.writeValueAsBytes(row));
+                out.write('\n');
+            } catch (IOException e) {
+                disconnected(e);
+            }
+        }
+
+        synchronized void flush() {
+            if (closed) return;
+            try {
+                out.flush();
+            } catch (IOException e) {
+                disconnected(e);
+            }
+        }
+
+        private void disconnected(IOException e) {
+            closed = true;
+            log.info("Import client disconnected: {}", e.toString());
+        }
+    }
+}
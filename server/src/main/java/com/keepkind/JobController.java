@@ -0,0 +1,66 @@
+package com.keepkind;
+
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/jobs")
+public class JobController {
+
+    private final JdbcTemplate jdbc;
+
+    public JobController(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @GetMapping("/{jobId}")
+    public Map<String, Object> getJob(@PathVariable long jobId) {
+        Map<String, Object> row;
+        try {
+            row = jdbc.queryForMap(
+                    "SELECT id, source_id, status, total_chunks, embedded_chunks, reused_chunks, embedded_at_start, attempts, error, " +
+                            "created_at, started_at, updated_at, finished_at, " +
+                            "EXTRACT(EPOCH FROM (COALESCE(finished_at, now()) - started_at)) AS run_seconds " +
+                            "FROM embedding_jobs WHERE id = ?",
+                    jobId
+            );
+        } catch (EmptyResultDataAccessException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "job not found");
+        }
+
+        int total = ((Number) row.get("total_chunks")).intValue();
+        int embedded = ((Number) row.get("embedded_chunks")).intValue();
+        int embeddedThisRun = embedded - ((Number) row.get("embedded_at_start")).intValue();
+        double runSeconds = row.get("run_seconds") == null ? 0 : ((Number) row.get("run_seconds")).doubleValue();
+
+        // Rate and ETA come from the current run only, so a resumed job is not skewed by earlier runs
+        Double chunksPerSec = (embeddedThisRun > 0 && runSeconds > 0) ? embeddedThisRun / runSeconds : null;
+        Long etaSeconds = null;
+        if ("running".equals(row.get("status")) && chunksPerSec != null) {
+            etaSeconds = Math.round(Math.max(0, total - embedded) / chunksPerSec);
+        }
+
+        Map<String, Object> resp = new LinkedHashMap<>();
+        resp.put("jobId", row.get("id"));
+        resp.put("sourceId", row.get("source_id"));
+        resp.put("status", row.get("status"));
+        resp.put("totalChunks", total);
+        resp.put("embeddedChunks", embedded);
+        resp.put("reusedChunks", row.get("reused_chunks"));
+        resp.put("progress", total == 0 ? ("done".equals(row.get("status")) ? 1.0 : 0.0) : (double) embedded / total);
+        resp.put("chunksPerSec", chunksPerSec == null ? null : Math.round(chunksPerSec * 10) / 10.0);
+        resp.put("etaSeconds", etaSeconds);
+        resp.put("attempts", row.get("attempts"));
+        resp.put("error", row.get("error"));
+        resp.put("createdAt", row.get("created_at"));
+        resp.put("startedAt", row.get("started_at"));
+        resp.put("finishedAt", row.get("finished_at"));
+        return resp;
+    }
+}
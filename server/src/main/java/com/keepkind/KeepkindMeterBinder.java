@@ -0,0 +1,94 @@
+package com.keepkind;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Exposes the counters behind the /debug stats endpoints (bulkheads, Ollama connection pool,
+ * query-embedding and receipt caches, request coalescing) as meters, so they can be scraped next to the stage timers.
+ */
+@Component
+public class KeepkindMeterBinder implements MeterBinder {
+
+    private final OllamaChatClient chat;
+    private final OllamaEmbeddingClient embedder;
+    private final OllamaHttp transport;
+    private final QueryEmbeddingCache queryCache;
+    private final ReceiptCache receiptCache;
+    private final AskSingleFlight askFlight;
+    private final ReceiptSingleFlight receiptFlight;
+
+    public KeepkindMeterBinder(
+            OllamaChatClient chat,
+            OllamaEmbeddingClient embedder,
+            OllamaHttp transport,
+            QueryEmbeddingCache queryCache,
+            ReceiptCache receiptCache,
+            AskSingleFlight askFlight,
+            ReceiptSingleFlight receiptFlight
+    ) {
+        this.chat = chat;
+        this.embedder = embedder;
+        this.transport = transport;
+        this.queryCache = queryCache;
+        this.receiptCache = receiptCache;
+        this.askFlight = askFlight;
+        this.receiptFlight = receiptFlight;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Bulkhead b : new Bulkhead[]{chat.bulkhead(), embedder.bulkhead()}) {
+            Tags tags = Tags.of("bulkhead", String.valueOf(b.stats().get("name")));
+            gauges(registry, "keepkind.bulkhead", tags, b, Bulkhead::stats, "active", "waiting", "maxConcurrent", "maxQueue");
+            counters(registry, "keepkind.bulkhead", tags, b, Bulkhead::stats, "calls", "rejectedQueueFull", "rejectedTimeout");
+        }
+
+        gauges(registry, "keepkind.ollama.pool", Tags.empty(), transport, OllamaHttp::poolStats, "leased", "available", "pending", "max");
+        counters(registry, "keepkind.ollama.pool", Tags.empty(), transport, OllamaHttp::poolStats, "retries", "retriesExhausted");
+
+        Tags query = Tags.of("cache", "query-embedding");
+        gauges(registry, "keepkind.cache", query, queryCache, QueryEmbeddingCache::stats, "size", "maxEntries");
+        counters(registry, "keepkind.cache", query, queryCache, QueryEmbeddingCache::stats, "hits", "misses", "evictions", "expirations");
+
+        Tags receipts = Tags.of("cache", "receipt");
+        gauges(registry, "keepkind.cache", receipts, receiptCache, ReceiptCache::stats, "size", "maxEntries");
+        counters(registry, "keepkind.cache", receipts, receiptCache, ReceiptCache::stats, "hits", "misses", "evictions");
+
+        for (SingleFlight<?> f : new SingleFlight<?>[]{askFlight, receiptFlight}) {
+            Tags tags = Tags.of("endpoint", String.valueOf(f.stats().get("name")));
+            gauges(registry, "keepkind.singleflight", tags, f, SingleFlight::stats, "inFlight");
+            counters(registry, "keepkind.singleflight", tags, f, SingleFlight::stats, "executed", "shared");
+        }
+    }
+
+    // meters hold their source weakly: pass the long-lived component, not a lambda over it
+    private static <T> void gauges(MeterRegistry registry, String prefix, Tags tags, T source,
+                                   Function<T, Map<String, Object>> stats, String... keys) {
+        for (String key : keys) {
+            Gauge.builder(prefix + "." + key, source, s -> number(stats.apply(s), key))
+                    .tags(tags)
+                    .register(registry);
+        }
+    }
+
+    private static <T> void counters(MeterRegistry registry, String prefix, Tags tags, T source,
+                                     Function<T, Map<String, Object>> stats, String... keys) {
+        for (String key : keys) {
+            FunctionCounter.builder(prefix + "." + key, source, s -> number(stats.apply(s), key))
+                    .tags(tags)
+                    .register(registry);
+        }
+    }
+
+    private static double number(Map<String, Object> stats, String key) {
+        return stats.get(key) instanceof Number n ? n.doubleValue() : Double.NaN;
+    }
+}
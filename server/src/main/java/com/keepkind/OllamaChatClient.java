@@ -1,34 +1,111 @@
 package com.keepkind;
 
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClient;
+import tools.jackson.databind.ObjectMapper;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @Component
 public class OllamaChatClient {
 
     private final RestClient http;
+    private final CloseableHttpClient streamHttp;
     private final String baseUrl;
     private final String model;
+    private final String keepAlive;
+    private final ObjectMapper mapper;
+    private final Bulkhead bulkhead;
 
     public OllamaChatClient(
             @Value("${keepkind.ollama.baseUrl}") String baseUrl,
-            @Value("${keepkind.ollama.chatModel}") String model
+            @Value("${keepkind.ollama.chatModel}") String model,
+            @Value("${keepkind.ollama.keepAlive:30m}") String keepAlive,
+            OllamaHttp transport,
+            ObjectMapper mapper,
+            @Value("${keepkind.ollama.bulkhead.chat.maxConcurrent:2}") int maxConcurrent,
+            @Value("${keepkind.ollama.bulkhead.chat.maxQueue:8}") int maxQueue,
+            @Value("${keepkind.ollama.bulkhead.chat.maxWaitMs:30000}") long maxWaitMs
     ) {
-        this.http = RestClient.create();
+        this.http = transport.chat();
+        this.streamHttp = transport.chatHttp();
         this.baseUrl = baseUrl;
         this.model = model;
+        this.keepAlive = keepAlive;
+        this.mapper = mapper;
+        this.bulkhead = new Bulkhead("ollama-chat", maxConcurrent, maxQueue, maxWaitMs);
     }
 
-    @SuppressWarnings("unchecked")
+    public String model() {
+        return model;
+    }
+
+    public Bulkhead bulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * Ollama's own timings from the final /api/chat message (durations in nanoseconds).
+     */
+    public record ChatStats(
+            long promptEvalCount,
+            long promptEvalDurationNs,
+            long evalCount,
+            long evalDurationNs,
+            long loadDurationNs,
+            long totalDurationNs
+    ) {
+        static ChatStats from(Map<String, Object> m) {
+            return new ChatStats(
+                    asLong(m.get("prompt_eval_count")),
+                    asLong(m.get("prompt_eval_duration")),
+                    asLong(m.get("eval_count")),
+                    asLong(m.get("eval_duration")),
+                    asLong(m.get("load_duration")),
+                    asLong(m.get("total_duration"))
+            );
+        }
+
+        public double tokensPerSec() {
+            return evalDurationNs == 0 ? 0 : evalCount * 1e9 / evalDurationNs;
+        }
+
+        private static long asLong(Object o) {
+            return o instanceof Number n ? n.longValue() : 0L;
+        }
+    }
+
+    /** A complete (non-streamed) answer with Ollama's timings for it. */
+    public record Reply(String content, ChatStats stats) {}
+
     public String chat(String system, String user) {
+        return chatReply(system, user).content();
+    }
+
+    public Reply chatReply(String system, String user) {
+        return bulkhead.call(() -> doChat(system, user));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Reply doChat(String system, String user) {
         Map<String, Object> body = Map.of(
                 "model", model,
                 "stream", false,
+                "keep_alive", keepAlive,
                 "messages", List.of(
                         Map.of("role", "system", "content", system),
                         Map.of("role", "user", "content", user)
@@ -47,6 +124,103 @@ public class OllamaChatClient {
         }
         Map<String, Object> msg = (Map<String, Object>) resp.get("message");
         Object content = msg.get("content");
-        return content == null ? "" : content.toString();
+        return new Reply(content == null ? "" : content.toString(), ChatStats.from(resp));
+    }
+
+    /**
+     * Loads the model (if it is not loaded yet) and evaluates {@code system} with a one-token
+     * answer, so the next request that starts with the same system prompt finds the model in
+     * memory and that prefix in Ollama's KV cache. Not subject to the bulkhead.
+     */
+    @SuppressWarnings("unchecked")
+    public ChatStats warmUp(String system) {
+        Map<String, Object> body = Map.of(
+                "model", model,
+                "stream", false,
+                "keep_alive", keepAlive,
+                "options", Map.of("num_predict", 1),
+                "messages", List.of(
+                        Map.of("role", "system", "content", system),
+                        Map.of("role", "user", "content", Prompts.user("ping", ""))
+                )
+        );
+        Map<String, Object> resp = http.post()
+                .uri(baseUrl + "/api/chat")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body)
+                .retrieve()
+                .body(Map.class);
+        if (resp == null) throw new IllegalStateException("Empty warm-up response");
+        return ChatStats.from(resp);
+    }
+
+    /**
+     * Streams the answer: Ollama sends one JSON object per line, each carrying the next piece of
+     * message.content, and a final object with "done": true and the timing counters.
+     * If {@code onToken} throws (e.g. the client went away), the Ollama request is aborted: the
+     * connection is dropped without reading the rest of the answer, so Ollama stops generating
+     * and the bulkhead permit is released at once.
+     */
+    public ChatStats chatStream(String system, String user, Consumer<String> onToken) {
+        return bulkhead.call(() -> doChatStream(system, user, onToken));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ChatStats doChatStream(String system, String user, Consumer<String> onToken) {
+        Map<String, Object> body = Map.of(
+                "model", model,
+                "stream", true,
+                "keep_alive", keepAlive,
+                "messages", List.of(
+                        Map.of("role", "system", "content", system),
+                        Map.of("role", "user", "content", user)
+                )
+        );
+
+        HttpPost post = new HttpPost(baseUrl + "/api/chat");
+        post.setEntity(new StringEntity(mapper.writeValueAsString(body), ContentType.APPLICATION_JSON));
+        ClassicHttpResponse response;
+        try {
+            response = streamHttp.executeOpen(null, post, null);
+        } catch (IOException e) {
+            throw new ResourceAccessException("Ollama /api/chat failed: " + e.getMessage(), e);
+        }
+
+        boolean completed = false;
+        try {
+            if (response.getCode() >= 400) {
+                throw new IllegalStateException("Ollama /api/chat returned " + response.getCode());
+            }
+            BufferedReader lines = new BufferedReader(
+                    new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank()) continue;
+                Map<String, Object> part = mapper.readValue(line, Map.class);
+                if (part.containsKey("error")) {
+                    throw new IllegalStateException("Ollama error: " + part.get("error"));
+                }
+                Map<String, Object> msg = (Map<String, Object>) part.get("message");
+                Object content = msg == null ? null : msg.get("content");
+                if (content != null && !content.toString().isEmpty()) {
+                    onToken.accept(content.toString());
+                }
+                if (Boolean.TRUE.equals(part.get("done"))) {
+                    completed = true;
+                    return ChatStats.from(part);
+                }
+            }
+            throw new IllegalStateException("Chat stream ended without done message");
+        } catch (IOException e) {
+            throw new ResourceAccessException("Ollama /api/chat stream failed: " + e.getMessage(), e);
+        } finally {
+            // closing normally drains the body (and keeps the connection); on failure drop it instead
+            if (!completed) post.abort();
+            try {
+                response.close();
+            } catch (IOException ignored) {
+                // already aborted
+            }
+        }
     }
 }
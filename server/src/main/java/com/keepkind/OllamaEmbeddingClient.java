@@ -3,6 +3,7 @@ package com.keepkind;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClient;
 
 import java.util.List;
@@ -12,41 +13,109 @@ import java.util.Map;
 public class OllamaEmbeddingClient {
 
     private final RestClient http;
+    private final OllamaHttp transport;
     private final String baseUrl;
     private final String model;
+    private final String keepAlive;
+    private final QueryEmbeddingCache queryCache;
+    private final VectorCodec codec;
+    private final Bulkhead bulkhead;
 
     public OllamaEmbeddingClient(
         @Value("${keepkind.ollama.baseUrl}") String baseUrl,
-        @Value("${keepkind.ollama.embedModel}") String model
+        @Value("${keepkind.ollama.embedModel}") String model,
+        @Value("${keepkind.ollama.keepAlive:30m}") String keepAlive,
+        OllamaHttp transport,
+        QueryEmbeddingCache queryCache,
+        VectorCodec codec,
+        @Value("${keepkind.ollama.bulkhead.embed.maxConcurrent:4}") int maxConcurrent,
+        @Value("${keepkind.ollama.bulkhead.embed.maxQueue:32}") int maxQueue,
+        @Value("${keepkind.ollama.bulkhead.embed.maxWaitMs:5000}") long maxWaitMs
 	) {
-    this.http = RestClient.create();
+    this.http = transport.embed();
+    this.transport = transport;
     this.baseUrl = baseUrl;
     this.model = model;
+    this.keepAlive = keepAlive;
+    this.queryCache = queryCache;
+    this.codec = codec;
+    this.bulkhead = new Bulkhead("ollama-embed", maxConcurrent, maxQueue, maxWaitMs);
 	}
 
-    @SuppressWarnings("unchecked")
-    public List<Double> embedOne(String text) {
+    public String model() {
+        return model;
+    }
+
+    public Bulkhead bulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * Embeds a user question through the shared query cache. The returned array may be
+     * shared with other callers and must not be modified.
+     */
+    public float[] embedQuery(String text) {
+        String normalized = QueryEmbeddingCache.normalize(text);
+        String key = QueryEmbeddingCache.key(model, normalized);
+
+        float[] cached = queryCache.get(key);
+        if (cached != null) return cached;
+
+        float[] vec = embedOne(normalized);
+        queryCache.put(key, vec);
+        return vec;
+    }
+
+    public float[] embedOne(String text) {
+        // Ollama returns: {"embeddings":[[...]]} for single input
+        return bulkhead.call(() -> transport.withRetry(() -> embed(text)))[0];
+    }
+
+    /**
+     * Embeds several texts in one /api/embed call. Vectors come back in input order.
+     * Used by background jobs, so it waits for a bulkhead permit instead of being rejected.
+     */
+    public float[][] embedBatch(List<String> texts) {
+        if (texts.isEmpty()) return new float[0][];
+        float[][] embs = bulkhead.callWaiting(() -> transport.withRetry(() -> embed(texts)));
+        if (embs.length != texts.size()) {
+            throw new IllegalStateException("Expected " + texts.size() + " embeddings, got " + embs.length);
+        }
+        return embs;
+    }
+
+    /**
+     * Loads the embedding model with a throwaway input; not cached, not subject to the bulkhead.
+     */
+    public void warmUp() {
+        transport.withRetry(() -> embed("warm-up"));
+    }
+
+    private float[][] embed(Object input) {
         Map<String, Object> body = Map.of(
                 "model", model,
-                "input", text
+                "input", input,
+                "keep_alive", keepAlive
         );
 
-        Map<String, Object> resp = http.post()
+        float[][] embs = http.post()
                 .uri(baseUrl + "/api/embed")
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(body)
-                .retrieve()
-                .body(Map.class);
-
-        if (resp == null || !resp.containsKey("embeddings")) {
-            throw new IllegalStateException("Missing embeddings in response");
-        }
+                .exchange((request, response) -> {
+                    if (response.getStatusCode().is5xxServerError()) {
+                        // retryable, see OllamaHttp.withRetry
+                        throw new HttpServerErrorException(response.getStatusCode(), "Ollama /api/embed failed");
+                    }
+                    if (response.getStatusCode().isError()) {
+                        throw new IllegalStateException("Ollama /api/embed returned " + response.getStatusCode());
+                    }
+                    return codec.decodeEmbeddings(response.getBody());
+                });
 
-        // Ollama returns: {"embeddings":[[...]]} for single input
-        List<List<Double>> embs = (List<List<Double>>) resp.get("embeddings");
-        if (embs == null || embs.isEmpty()) {
+        if (embs == null || embs.length == 0) {
             throw new IllegalStateException("Empty embeddings array");
         }
-        return embs.get(0);
+        return embs;
     }
 }
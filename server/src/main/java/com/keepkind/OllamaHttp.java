@@ -0,0 +1,153 @@
+package com.keepkind;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Shared HTTP transport for all Ollama traffic: one keep-alive connection pool, with separate
+ * RestClients for embed and chat so each gets its own response timeout.
+ */
+@Component
+public class OllamaHttp implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(OllamaHttp.class);
+
+    private final PoolingHttpClientConnectionManager pool;
+    private final CloseableHttpClient embedHttp;
+    private final CloseableHttpClient chatHttp;
+    private final RestClient embed;
+    private final RestClient chat;
+
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong retriesExhausted = new AtomicLong();
+
+    public OllamaHttp(
+            @Value("${keepkind.ollama.http.maxConnections:32}") int maxConnections,
+            @Value("${keepkind.ollama.http.connectTimeoutMs:2000}") long connectTimeoutMs,
+            @Value("${keepkind.ollama.http.poolWaitMs:5000}") long poolWaitMs,
+            @Value("${keepkind.ollama.http.embedTimeoutMs:30000}") long embedTimeoutMs,
+            @Value("${keepkind.ollama.http.chatTimeoutMs:180000}") long chatTimeoutMs,
+            @Value("${keepkind.ollama.http.embedRetry.maxAttempts:3}") int maxAttempts,
+            @Value("${keepkind.ollama.http.embedRetry.backoffMs:200}") long backoffMs,
+            @Value("${keepkind.ollama.http.embedRetry.maxBackoffMs:2000}") long maxBackoffMs
+    ) {
+        this.pool = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+        this.embedHttp = client(poolWaitMs, embedTimeoutMs);
+        this.chatHttp = client(poolWaitMs, chatTimeoutMs);
+        this.embed = RestClient.builder().requestFactory(new HttpComponentsClientHttpRequestFactory(embedHttp)).build();
+        this.chat = RestClient.builder().requestFactory(new HttpComponentsClientHttpRequestFactory(chatHttp)).build();
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = Math.max(1, backoffMs);
+        this.maxBackoffMs = Math.max(this.backoffMs, maxBackoffMs);
+    }
+
+    private CloseableHttpClient client(long poolWaitMs, long responseTimeoutMs) {
+        return HttpClients.custom()
+                .setConnectionManager(pool)
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolWaitMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                        .build())
+                // retries are ours (embed only), never for chat
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    public RestClient embed() {
+        return embed;
+    }
+
+    public RestClient chat() {
+        return chat;
+    }
+
+    /**
+     * The chat client itself, for streamed responses that must be abortable: closing a response
+     * through RestClient reads the rest of the body first, which for a generation means waiting
+     * until Ollama has finished it.
+     */
+    public CloseableHttpClient chatHttp() {
+        return chatHttp;
+    }
+
+    /**
+     * Runs an idempotent call, retrying I/O failures and 5xx responses with full-jitter
+     * exponential backoff (random wait in [0, min(maxBackoff, backoff * 2^attempt))).
+     */
+    public <T> T withRetry(Supplier<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            } catch (ResourceAccessException | HttpServerErrorException e) {
+                if (attempt >= maxAttempts) {
+                    retriesExhausted.incrementAndGet();
+                    throw e;
+                }
+                long cap = Math.min(maxBackoffMs, backoffMs << Math.min(attempt - 1, 20));
+                long sleepMs = ThreadLocalRandom.current().nextLong(cap + 1);
+                retries.incrementAndGet();
+                log.debug("Ollama call failed (attempt {}/{}), retrying in {} ms: {}", attempt, maxAttempts, sleepMs, e.getMessage());
+                try {
+                    Thread.sleep(sleepMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> poolStats() {
+        PoolStats total = pool.getTotalStats();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("leased", total.getLeased());
+        out.put("available", total.getAvailable());
+        out.put("pending", total.getPending());
+        out.put("max", total.getMax());
+        out.put("retries", retries.get());
+        out.put("retriesExhausted", retriesExhausted.get());
+        return out;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        embedHttp.close();
+        chatHttp.close();
+        pool.close();
+    }
+}
@@ -0,0 +1,46 @@
+package com.keepkind;
+
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/debug/ollama")
+public class OllamaStatusController {
+
+    private final OllamaChatClient chat;
+    private final OllamaEmbeddingClient embedder;
+    private final OllamaHttp transport;
+    private final OllamaWarmup warmup;
+
+    public OllamaStatusController(OllamaChatClient chat, OllamaEmbeddingClient embedder, OllamaHttp transport, OllamaWarmup warmup) {
+        this.chat = chat;
+        this.embedder = embedder;
+        this.transport = transport;
+        this.warmup = warmup;
+    }
+
+    @GetMapping("/bulkheads")
+    public Map<String, Object> bulkheads() {
+        return Map.of(
+                "chat", chat.bulkhead().stats(),
+                "embed", embedder.bulkhead().stats()
+        );
+    }
+
+    @GetMapping("/pool")
+    public Map<String, Object> pool() {
+        return transport.poolStats();
+    }
+
+    @GetMapping("/warmup")
+    public Map<String, Object> lastWarmup() {
+        return warmup.last();
+    }
+
+    /** Warms both models now and returns the timings (used by eval/cold-warm.sh). */
+    @PostMapping("/warmup")
+    public Map<String, Object> warmup() {
+        return warmup.run();
+    }
+}
@@ -0,0 +1,85 @@
+package com.keepkind;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Loads the chat and embedding models when the server starts, so the first /ask does not pay
+ * for a cold model load; the chat warm-up also prefills the /ask system prompt. Runs in the
+ * background and only logs if Ollama is not reachable yet. keepkind.ollama.keepAlive then decides
+ * how long Ollama keeps the models loaded between requests.
+ */
+@Component
+public class OllamaWarmup {
+
+    private static final Logger log = LoggerFactory.getLogger(OllamaWarmup.class);
+
+    private final OllamaChatClient chat;
+    private final OllamaEmbeddingClient embedder;
+    private final boolean enabled;
+
+    private volatile Map<String, Object> last = Map.of("status", "not run");
+
+    public OllamaWarmup(
+            OllamaChatClient chat,
+            OllamaEmbeddingClient embedder,
+            @Value("${keepkind.ollama.warmup.enabled:true}") boolean enabled
+    ) {
+        this.chat = chat;
+        this.embedder = embedder;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (!enabled) return;
+        Thread t = new Thread(this::run, "ollama-warmup");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Warms both models now. Timings show whether a model had to be loaded (loadMs) or was
+     * already resident.
+     */
+    public synchronized Map<String, Object> run() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        try {
+            long t0 = System.nanoTime();
+            embedder.warmUp();
+            long embedMs = (System.nanoTime() - t0) / 1_000_000;
+
+            long t1 = System.nanoTime();
+            OllamaChatClient.ChatStats stats = chat.warmUp(Prompts.ASK_SYSTEM);
+            long chatMs = (System.nanoTime() - t1) / 1_000_000;
+
+            out.put("status", "done");
+            out.put("embedModel", embedder.model());
+            out.put("embedMs", embedMs);
+            out.put("chatModel", chat.model());
+            out.put("chatMs", chatMs);
+            out.put("chatLoadMs", stats.loadDurationNs() / 1_000_000);
+            out.put("chatPrefillMs", stats.promptEvalDurationNs() / 1_000_000);
+            out.put("promptTokens", stats.promptEvalCount());
+            log.info("Ollama warm-up: {} in {} ms, {} in {} ms (load {} ms)",
+                    embedder.model(), embedMs, chat.model(), chatMs, stats.loadDurationNs() / 1_000_000);
+        } catch (RuntimeException e) {
+            out.put("status", "failed");
+            out.put("error", e.getMessage());
+            log.warn("Ollama warm-up failed: {}", e.getMessage());
+        }
+        last = out;
+        return out;
+    }
+
+    public Map<String, Object> last() {
+        return last;
+    }
+}
@@ -0,0 +1,158 @@
+package com.keepkind;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Retrieval in Postgres: ORDER BY embedding <=> query (default engine), served by the HNSW
+ * index on chunks.embedding. Search parameters are set with SET LOCAL semantics
+ * (set_config(..., true)) so they only apply to this query's transaction.
+ */
+@Component
+@ConditionalOnProperty(name = "keepkind.retrieval.engine", havingValue = "pgvector", matchIfMissing = true)
+public class PgVectorRetrievalEngine implements RetrievalEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(PgVectorRetrievalEngine.class);
+
+    /**
+     * Keyword ranking (GIN on content_tsv) fused with a vector ranking CTE named vec(id, r) by
+     * reciprocal rank fusion: score = 1/(rrfK + vector rank) + 1/(rrfK + keyword rank).
+     * Both sides only consider embedded chunks, so every row has a distance.
+     * Parameters after the vec CTE's own: text, itemId, candidates, query vector, rrfK, rrfK, k.
+     */
+    static String fusionSql(String vecCte) {
+        return "WITH vec AS (" + vecCte + "), " +
+                "kw AS (" +
+                "  SELECT id, row_number() OVER (ORDER BY rank DESC, id) AS r FROM (" +
+                "    SELECT c.id, ts_rank_cd(c.content_tsv, q) AS rank " +
+                "    FROM chunks c, websearch_to_tsquery('english', ?) q " +
+                "    WHERE c.item_id = ? AND c.content_tsv @@ q AND c.embedding IS NOT NULL " +
+                "    ORDER BY rank DESC, c.id LIMIT ?) k" +
+                ") " +
+                "SELECT c.id, c.source_id, c.chunk_index, c.content, (c.embedding <=> ?::vector) AS distance, " +
+                "       vec.r AS vector_rank, kw.r AS keyword_rank, " +
+                "       COALESCE(1.0 / (? + vec.r), 0) + COALESCE(1.0 / (? + kw.r), 0) AS score " +
+                "FROM vec FULL OUTER JOIN kw ON kw.id = vec.id " +
+                "JOIN chunks c ON c.id = COALESCE(vec.id, kw.id) " +
+                "ORDER BY score DESC, c.id " +
+                "LIMIT ?";
+    }
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final int efSearch;
+    private final int probes;
+    private final String iterativeScan;
+    /** iterativeScan, or "" if the installed pgvector has no hnsw.iterative_scan; null until checked. */
+    private volatile String effectiveIterativeScan;
+    private final int candidates;
+    private final int rrfK;
+
+    public PgVectorRetrievalEngine(
+            JdbcTemplate jdbc,
+            TransactionTemplate tx,
+            @Value("${keepkind.retrieval.pgvector.efSearch:40}") int efSearch,
+            @Value("${keepkind.retrieval.pgvector.probes:1}") int probes,
+            @Value("${keepkind.retrieval.pgvector.iterativeScan:strict_order}") String iterativeScan,
+            @Value("${keepkind.retrieval.hybrid.candidates:40}") int candidates,
+            @Value("${keepkind.retrieval.hybrid.rrfK:60}") int rrfK
+    ) {
+        this.jdbc = jdbc;
+        this.tx = tx;
+        this.efSearch = efSearch;
+        this.probes = probes;
+        this.iterativeScan = iterativeScan;
+        this.candidates = candidates;
+        this.rrfK = rrfK;
+    }
+
+    @Override
+    public String name() {
+        return "pgvector";
+    }
+
+    @Override
+    public List<Map<String, Object>> search(long itemId, float[] query, int k, Integer ef) {
+        return tuned(k, ef, () -> jdbc.queryForList(
+                "SELECT id, source_id, chunk_index, content, (embedding <=> ?::vector) AS distance " +
+                        "FROM chunks " +
+                        "WHERE item_id = ? AND embedding IS NOT NULL " +
+                        "ORDER BY distance " +
+                        "LIMIT ?",
+                query, itemId, k
+        ));
+    }
+
+    @Override
+    public List<Map<String, Object>> hybridSearch(long itemId, String text, float[] query, int k, Integer ef) {
+        int n = Math.max(k, candidates);
+        return tuned(n, ef, () -> jdbc.queryForList(
+                fusionSql(
+                        "SELECT id, row_number() OVER (ORDER BY d, id) AS r FROM (" +
+                                "  SELECT id, embedding <=> ?::vector AS d FROM chunks " +
+                                "  WHERE item_id = ? AND embedding IS NOT NULL " +
+                                "  ORDER BY d LIMIT ?) v"
+                ),
+                query, itemId, n,
+                text, itemId, n, query, rrfK, rrfK, k
+        ));
+    }
+
+    private List<Map<String, Object>> tuned(int k, Integer ef, Supplier<List<Map<String, Object>>> query) {
+        // hnsw.ef_search below k caps the result size
+        int effectiveEf = Math.max(k, ef != null ? ef : efSearch);
+        String scan = iterativeScan();
+        return tx.execute(status -> {
+            // iterative_scan (pgvector >= 0.8) keeps scanning the index until k rows pass the
+            // item_id filter; without it a small item can come back short or empty
+            jdbc.queryForList(
+                    "SELECT set_config('hnsw.ef_search', ?, true), set_config('ivfflat.probes', ?, true)" +
+                            (scan.isBlank() ? "" : ", set_config('hnsw.iterative_scan', ?, true)"),
+                    scan.isBlank()
+                            ? new Object[]{String.valueOf(effectiveEf), String.valueOf(probes)}
+                            : new Object[]{String.valueOf(effectiveEf), String.valueOf(probes), scan}
+            );
+            return query.get();
+        });
+    }
+
+    private String iterativeScan() {
+        String v = effectiveIterativeScan;
+        if (v == null) {
+            v = iterativeScan.isBlank() || supportsIterativeScan() ? iterativeScan : "";
+            effectiveIterativeScan = v;
+        }
+        return v;
+    }
+
+    /** hnsw.iterative_scan exists from pgvector 0.8; setting it on an older extension is an error. */
+    private boolean supportsIterativeScan() {
+        List<String> version = jdbc.queryForList("SELECT extversion FROM pg_extension WHERE extname = 'vector'", String.class);
+        boolean supported = !version.isEmpty() && atLeast(version.get(0), 0, 8);
+        if (!supported) {
+            log.warn("pgvector {} has no hnsw.iterative_scan; ignoring keepkind.retrieval.pgvector.iterativeScan={}",
+                    version.isEmpty() ? "(not installed)" : version.get(0), iterativeScan);
+        }
+        return supported;
+    }
+
+    static boolean atLeast(String version, int major, int minor) {
+        String[] parts = version.split("\\.");
+        try {
+            int maj = Integer.parseInt(parts[0]);
+            int min = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            return maj > major || (maj == major && min >= minor);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.keepkind;
+
+/**
+ * Everything sent to the chat model besides retrieved context and the question.
+ * <p>
+ * Ollama reuses its KV cache for the longest prefix a request shares with the previous one, so
+ * the prompts are laid out static-first: a constant system prompt per endpoint, then the context,
+ * then the question. Keep these strings free of anything per-request (dates, ids, settings), and
+ * bump the version when the wording or layout changes; receipts record it as prompt_version.
+ */
+public final class Prompts {
+
+    public static final String ASK_VERSION = "ask-v2";
+
+    public static final String ASK_SYSTEM = """
+            You are KeepKind. Answer using ONLY the provided context.
+            If the answer is not in the context, say: "I don't have enough information in the provided sources."
+            Do not guess. Keep it concise.
+            """;
+
+    public static final String RECEIPT_VERSION = "receipt-v2";
+
+    public static final String RECEIPT_SYSTEM = """
+            You are KeepKind. Create a decision receipt using ONLY the provided context.
+            Output MUST be in this exact format:
+
+            RECOMMENDATION: <one of maintain|repair|resell|recycle|keep>
+            RATIONALE: <1-3 short sentences, grounded in context>
+            ASSUMPTIONS: <comma-separated list, or 'none'>
+
+            If context is insufficient, use:
+            RECOMMENDATION: keep
+            RATIONALE: I don't have enough information in the provided sources.
+            ASSUMPTIONS: none
+            """;
+
+    private Prompts() {}
+
+    /** User message: context before the question, so requests over the same chunks share more prefix. */
+    public static String user(String question, String contextBlock) {
+        return "Context:\n" + contextBlock + "Question:\n" + question.trim();
+    }
+}
@@ -0,0 +1,103 @@
+package com.keepkind;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size- and TTL-bounded LRU of query embeddings, keyed by embed model and normalized text.
+ * Vectors are kept as float[] (768 dims = ~3 KB instead of ~20 KB as boxed doubles).
+ */
+@Component
+public class QueryEmbeddingCache {
+
+    private record Entry(float[] vector, long expiresAtNanos) {}
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public QueryEmbeddingCache(
+            @Value("${keepkind.ollama.queryCache.maxEntries:1000}") int maxEntries,
+            @Value("${keepkind.ollama.queryCache.ttl:1h}") Duration ttl
+    ) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Collapses whitespace and trims, so "What  should I do? " and "What should I do?" share an entry.
+     */
+    public static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ");
+    }
+
+    static String key(String model, String normalizedText) {
+        return model + '\n' + normalizedText;
+    }
+
+    /**
+     * @return the cached vector (shared; callers must not modify it) or null on miss/expiry
+     */
+    public float[] get(String key) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry e = entries.get(key);
+            if (e == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (now - e.expiresAtNanos() >= 0) {
+                entries.remove(key);
+                expirations.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return e.vector();
+        }
+    }
+
+    public void put(String key, float[] vector) {
+        if (maxEntries == 0) return;
+        long expiresAt = System.nanoTime() + ttlNanos;
+        synchronized (entries) {
+            entries.put(key, new Entry(vector, expiresAt));
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (entries.size() > maxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long h = hits.get();
+        long m = misses.get();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("size", size);
+        out.put("maxEntries", maxEntries);
+        out.put("ttlSeconds", Duration.ofNanos(ttlNanos).toSeconds());
+        out.put("hits", h);
+        out.put("misses", m);
+        out.put("hitRate", (h + m) == 0 ? 0.0 : (double) h / (h + m));
+        out.put("evictions", evictions.get());
+        out.put("expirations", expirations.get());
+        return out;
+    }
+}
@@ -0,0 +1,92 @@
+package com.keepkind;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Where the time of an /ask or /receipt request goes, as histograms on /actuator/prometheus:
+ * <ul>
+ *   <li>{@code keepkind_rag_stage_seconds{endpoint, stage, model}}: embed (query embedding,
+ *       including cache hits), retrieve, prompt (assembly), llm (including the bulkhead wait),
+ *       persist</li>
+ *   <li>{@code keepkind_ollama_chat_*{endpoint, model}}: Ollama's own numbers from the final
+ *       /api/chat message: prefill (prompt_eval_duration), generation (eval_duration), model load,
+ *       tokens/sec and token counts</li>
+ * </ul>
+ */
+@Component
+public class RagMetrics {
+
+    public enum Stage {
+        EMBED, RETRIEVE, PROMPT, LLM, PERSIST;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final MeterRegistry registry;
+
+    public RagMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> T time(String endpoint, Stage stage, String model, Supplier<T> work) {
+        long started = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(endpoint, stage, model, System.nanoTime() - started);
+        }
+    }
+
+    public void record(String endpoint, Stage stage, String model, long nanos) {
+        Timer.builder("keepkind.rag.stage")
+                .description("Time per RAG pipeline stage")
+                .tags("endpoint", endpoint, "stage", stage.tag(), "model", model)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordChat(String endpoint, String model, OllamaChatClient.ChatStats stats) {
+        if (stats == null) return;
+        nanosTimer("keepkind.ollama.chat.prefill", "Ollama prompt evaluation (prompt_eval_duration)", endpoint, model)
+                .record(stats.promptEvalDurationNs(), TimeUnit.NANOSECONDS);
+        nanosTimer("keepkind.ollama.chat.generation", "Ollama token generation (eval_duration)", endpoint, model)
+                .record(stats.evalDurationNs(), TimeUnit.NANOSECONDS);
+        nanosTimer("keepkind.ollama.chat.load", "Ollama model load before the request (load_duration)", endpoint, model)
+                .record(stats.loadDurationNs(), TimeUnit.NANOSECONDS);
+
+        if (stats.evalDurationNs() > 0) {
+            DistributionSummary.builder("keepkind.ollama.chat.tokens.per.second")
+                    .description("Generation speed reported by Ollama (eval_count / eval_duration)")
+                    .tags("endpoint", endpoint, "model", model)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(stats.tokensPerSec());
+        }
+        Counter.builder("keepkind.ollama.chat.tokens")
+                .tags("endpoint", endpoint, "model", model, "kind", "prompt")
+                .register(registry)
+                .increment(stats.promptEvalCount());
+        Counter.builder("keepkind.ollama.chat.tokens")
+                .tags("endpoint", endpoint, "model", model, "kind", "completion")
+                .register(registry)
+                .increment(stats.evalCount());
+    }
+
+    private Timer nanosTimer(String name, String description, String endpoint, String model) {
+        return Timer.builder(name)
+                .description(description)
+                .tags("endpoint", endpoint, "model", model)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,122 @@
+package com.keepkind;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU of live receipts with their rendered Markdown. A receipt never changes after it is created
+ * except for being soft-deleted, which evicts it, so entries need no TTL. Each instance only sees
+ * its own deletes.
+ */
+@Component
+public class ReceiptCache {
+
+    /**
+     * @param row      the receipt columns (read-only)
+     * @param markdown export rendering
+     */
+    public record Cached(Map<String, Object> row, String markdown) {
+
+        public long itemId() {
+            return ((Number) row.get("item_id")).longValue();
+        }
+
+        /** Strong ETag for the JSON representation. */
+        public String jsonEtag() {
+            return "\"receipt-" + row.get("id") + "\"";
+        }
+
+        /** Strong ETag for the Markdown export. */
+        public String markdownEtag() {
+            return "\"receipt-" + row.get("id") + "-md" + ReceiptMarkdown.VERSION + "\"";
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final int maxEntries;
+    private final LinkedHashMap<Long, Cached> entries = new LinkedHashMap<>(64, 0.75f, true);
+    // bumped by evict(); a load that overlapped a delete must not re-insert what it read
+    private long evictGeneration;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ReceiptCache(JdbcTemplate jdbc, @Value("${keepkind.receipts.cache.maxEntries:1000}") int maxEntries) {
+        this.jdbc = jdbc;
+        this.maxEntries = Math.max(0, maxEntries);
+    }
+
+    /**
+     * @return the live (not deleted) receipt, from cache or Postgres, or null if there is none
+     */
+    public Cached get(long receiptId) {
+        long generation;
+        synchronized (entries) {
+            Cached c = entries.get(receiptId);
+            if (c != null) {
+                hits.incrementAndGet();
+                return c;
+            }
+            generation = evictGeneration;
+        }
+        misses.incrementAndGet();
+
+        List<Map<String, Object>> rows = jdbc.queryForList(
+                "SELECT id, item_id, created_at, receipt_version, question, recommendation, rationale, " +
+                        "citations::text AS citations, assumptions::text AS assumptions, " +
+                        "chat_model, embed_model, k_used, prompt_version, deleted_at " +
+                        "FROM receipts WHERE id = ? AND deleted_at IS NULL",
+                receiptId
+        );
+        if (rows.isEmpty()) return null;
+
+        Map<String, Object> row = rows.get(0);
+        Cached c = new Cached(Collections.unmodifiableMap(row), ReceiptMarkdown.render(row));
+        if (maxEntries > 0) {
+            synchronized (entries) {
+                if (generation != evictGeneration) return c;
+                entries.put(receiptId, c);
+                Iterator<Map.Entry<Long, Cached>> it = entries.entrySet().iterator();
+                while (entries.size() > maxEntries && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+        return c;
+    }
+
+    public void evict(long receiptId) {
+        synchronized (entries) {
+            entries.remove(receiptId);
+            evictGeneration++;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long h = hits.get();
+        long m = misses.get();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("size", size);
+        out.put("maxEntries", maxEntries);
+        out.put("hits", h);
+        out.put("misses", m);
+        out.put("hitRate", (h + m) == 0 ? 0.0 : (double) h / (h + m));
+        out.put("evictions", evictions.get());
+        return out;
+    }
+}
@@ -1,90 +1,144 @@
 package com.keepkind;
 
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import tools.jackson.databind.ObjectMapper;
 
 import java.sql.PreparedStatement;
+import java.sql.Timestamp;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/items/{itemId}")
 public class ReceiptController {
 
     private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ReceiptVersions versions;
+    private final RetrievalEngine retrieval;
     private final OllamaEmbeddingClient embedder;
     private final OllamaChatClient chat;
-
-    public ReceiptController(JdbcTemplate jdbc, OllamaEmbeddingClient embedder, OllamaChatClient chat) {
+    private final ReceiptCache receipts;
+    private final RagMetrics metrics;
+    private final ContextAssembler context;
+    private final ObjectMapper mapper;
+    private final ReceiptSingleFlight inFlight;
+
+    /** A createReceipt response; replayed when it is the receipt an Idempotency-Key already created. */
+    record Created(Map<String, Object> body, boolean replayed) {}
+
+    /**
+     * Identical receipt requests. The question is compared exactly (trimmed, as stored), since the
+     * receipt every waiter gets back holds the question the first caller sent.
+     */
+    private record ReceiptKey(long itemId, String question, int k, RetrievalEngine.Mode mode, Integer ef) {}
+
+    /**
+     * Requests carrying the same Idempotency-Key for an item. A different request under the key
+     * runs separately and gets the 409 from {@link #replay}, not the other request's receipt.
+     */
+    private record IdempotentKey(long itemId, String key, String requestHash) {}
+
+    public ReceiptController(
+            JdbcTemplate jdbc,
+            TransactionTemplate tx,
+            ReceiptVersions versions,
+            RetrievalEngine retrieval,
+            OllamaEmbeddingClient embedder,
+            OllamaChatClient chat,
+            ReceiptCache receipts,
+            RagMetrics metrics,
+            ContextAssembler context,
+            ReceiptSingleFlight inFlight,
+            ObjectMapper mapper
+    ) {
         this.jdbc = jdbc;
+        this.tx = tx;
+        this.versions = versions;
+        this.retrieval = retrieval;
         this.embedder = embedder;
         this.chat = chat;
+        this.receipts = receipts;
+        this.metrics = metrics;
+        this.context = context;
+        this.inFlight = inFlight;
+        this.mapper = mapper;
     }
 
+    /**
+     * Generates and stores a receipt. Identical requests already in flight (double clicks, client
+     * retries) wait for that one and get the same receipt. With an Idempotency-Key header, a repeat
+     * of the key for this item returns the receipt it created (Idempotent-Replayed: true) instead of
+     * generating another; reusing a key for a different request is a 409.
+     */
     @PostMapping("/receipt")
     public Map<String, Object> createReceipt(
             @PathVariable long itemId,
             @RequestParam String q,
-            @RequestParam(defaultValue = "5") int k
+            @RequestParam(defaultValue = "5") int k,
+            @RequestParam(required = false) Integer ef,
+            @RequestParam(defaultValue = "${keepkind.retrieval.mode:vector}") String mode,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            HttpServletResponse response
     ) {
         if (q == null || q.trim().isEmpty()) throw new IllegalArgumentException("q is required");
         int topK = Math.max(1, Math.min(k, 10));
+        RetrievalEngine.Mode searchMode = RetrievalEngine.Mode.parse(mode);
 
-        // Retrieve context (same as /ask)
-        var qVec = embedder.embedOne(q.trim());
-        String pgVec = toPgVector(qVec);
-
-        List<Map<String, Object>> ctx = jdbc.queryForList(
-                "SELECT id, source_id, chunk_index, content, (embedding <=> ?::vector) AS distance " +
-                        "FROM chunks " +
-                        "WHERE item_id = ? AND embedding IS NOT NULL " +
-                        "ORDER BY embedding <=> ?::vector " +
-                        "LIMIT ?",
-                pgVec, itemId, pgVec, topK
-        );
-
-        StringBuilder contextBlock = new StringBuilder();
-        for (Map<String, Object> row : ctx) {
-            contextBlock.append("CHUNK ")
-                    .append(row.get("id"))
-                    .append(" (source ")
-                    .append(row.get("source_id"))
-                    .append("):\n")
-                    .append(row.get("content"))
-                    .append("\n\n");
+        String idemKey = idempotencyKey == null || idempotencyKey.isBlank() ? null : idempotencyKey.trim();
+        if (idemKey == null) {
+            ReceiptKey key = new ReceiptKey(itemId, q.trim(), topK, searchMode, ef);
+            return inFlight.call(key, () -> generate(itemId, q, topK, searchMode, ef, null)).body();
         }
+        if (idemKey.length() > 255) throw new IllegalArgumentException("Idempotency-Key must be at most 255 characters");
+
+        String requestHash = ContentHash.sha256(q.trim() + '\n' + topK + '\n' + searchMode + '\n' + ef);
+        Created created = inFlight.call(new IdempotentKey(itemId, idemKey, requestHash), () -> {
+            Created previous = replay(itemId, idemKey, requestHash);
+            return previous != null ? previous : generate(itemId, q, topK, searchMode, ef, new Idempotency(idemKey, requestHash));
+        });
+        if (created.replayed()) response.setHeader("Idempotent-Replayed", "true");
+        return created.body();
+    }
 
-        String system = """
-                You are KeepKind. Create a decision receipt using ONLY the provided context.
-                Output MUST be in this exact format:
+    private record Idempotency(String key, String requestHash) {}
 
-                RECOMMENDATION: <one of maintain|repair|resell|recycle|keep>
-                RATIONALE: <1-3 short sentences, grounded in context>
-                ASSUMPTIONS: <comma-separated list, or 'none'>
+    private Created generate(long itemId, String q, int topK, RetrievalEngine.Mode searchMode, Integer ef,
+                             Idempotency idempotency) {
+        // Retrieve context (same as /ask)
+        float[] query = metrics.time("receipt", RagMetrics.Stage.EMBED, embedder.model(), () -> embedder.embedQuery(q));
+        List<Map<String, Object>> ctx = metrics.time("receipt", RagMetrics.Stage.RETRIEVE, embedder.model(),
+                () -> retrieval.search(searchMode, itemId, q.trim(), query, topK, VectorSearchController.efSearch(ef)));
 
-                If context is insufficient, use:
-                RECOMMENDATION: keep
-                RATIONALE: I don't have enough information in the provided sources.
-                ASSUMPTIONS: none
-                """;
+        // Neighbouring chunks merged, overlap dropped, within the context token budget
+        long promptStarted = System.nanoTime();
+        ContextAssembler.Packed packed = context.pack(ctx);
+        List<Map<String, Object>> used = packed.used();
+        String user = Prompts.user(q, ContextAssembler.render(packed.spans()));
+        metrics.record("receipt", RagMetrics.Stage.PROMPT, chat.model(), System.nanoTime() - promptStarted);
 
-        String user = "Question:\n" + q.trim() + "\n\nContext:\n" + contextBlock;
-        String out = chat.chat(system, user);
+        OllamaChatClient.Reply reply = metrics.time("receipt", RagMetrics.Stage.LLM, chat.model(), () -> chat.chatReply(Prompts.RECEIPT_SYSTEM, user));
+        metrics.recordChat("receipt", chat.model(), reply.stats());
+        String out = reply.content();
 
         ParsedReceipt pr = ParsedReceipt.parse(out);
 
         // Clean citations JSON for persistence (no chunk text/content)
-        String citationsJson = ctx.stream()
-                .map(r -> String.format("{\"chunkId\":%s,\"sourceId\":%s,\"distance\":%s}",
-                        r.get("id"), r.get("source_id"), r.get("distance")))
-                .reduce((a, b) -> a + "," + b)
-                .map(s -> "[" + s + "]")
-                .orElse("[]");
+        String citationsJson = citationsJson(used);
 
-        List<Map<String, Object>> cleanCitations = ctx.stream()
+        List<Map<String, Object>> cleanCitations = used.stream()
                 .map(r -> Map.of(
                         "chunkId", r.get("id"),
                         "sourceId", r.get("source_id"),
@@ -92,43 +146,53 @@ public class ReceiptController {
                 ))
                 .toList();
 
-        String assumptionsJson = pr.assumptions().isEmpty()
-                ? "[]"
-                : pr.assumptions().stream()
-                .map(a -> "\"" + a.replace("\"", "\\\"") + "\"")
-                .reduce((a, b) -> a + "," + b)
-                .map(s -> "[" + s + "]")
-                .orElse("[]");
+        String assumptionsJson = assumptionsJson(pr.assumptions());
+
+        long persistStarted = System.nanoTime();
+        // version and row in one transaction: the counter row lock orders concurrent receipts
+        record Persisted(long receiptId, int receiptVersion) {}
+        Persisted persisted = tx.execute(status -> {
+            int version = versions.next(itemId);
+            KeyHolder kh = new GeneratedKeyHolder();
+            jdbc.update(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "INSERT INTO receipts(item_id, receipt_version, question, recommendation, rationale, citations, assumptions, chat_model, embed_model, k_used, prompt_version) " +
+                                "VALUES (?, ?, ?, ?, ?, ?::jsonb, ?::jsonb, ?, ?, ?, ?)",
+                        new String[]{"id"}
+                );
+                ps.setLong(1, itemId);
+                ps.setInt(2, version);
+                ps.setString(3, q.trim());
+                ps.setString(4, pr.recommendation());
+                ps.setString(5, pr.rationale());
+                ps.setString(6, citationsJson);
+                ps.setString(7, assumptionsJson);
+                ps.setString(8, chat.model());
+                ps.setString(9, embedder.model());
+                ps.setInt(10, topK);
+                ps.setString(11, Prompts.RECEIPT_VERSION);
+                return ps;
+            }, kh);
+            long id = kh.getKey().longValue();
+            if (idempotency != null && jdbc.update(
+                    "INSERT INTO receipt_idempotency(item_id, idempotency_key, request_hash, receipt_id) VALUES (?, ?, ?, ?) " +
+                            "ON CONFLICT (item_id, idempotency_key) DO NOTHING",
+                    itemId, idempotency.key(), idempotency.requestHash(), id) == 0) {
+                // the key was taken meanwhile (another instance): keep theirs, give back the version
+                status.setRollbackOnly();
+                return null;
+            }
+            return new Persisted(id, version);
+        });
+        if (persisted == null) {
+            Created previous = replay(itemId, idempotency.key(), idempotency.requestHash());
+            if (previous == null) throw new IllegalStateException("Idempotency-Key " + idempotency.key() + " conflicted but has no receipt");
+            return previous;
+        }
 
-        Integer nextV = jdbc.queryForObject(
-                "SELECT COALESCE(MAX(receipt_version), 0) + 1 FROM receipts WHERE item_id = ? AND deleted_at IS NULL",
-                Integer.class,
-                itemId
-        );
-        int receiptVersion = (nextV == null) ? 1 : nextV;
-
-        KeyHolder kh = new GeneratedKeyHolder();
-        jdbc.update(con -> {
-            PreparedStatement ps = con.prepareStatement(
-                    "INSERT INTO receipts(item_id, receipt_version, question, recommendation, rationale, citations, assumptions, chat_model, embed_model, k_used, prompt_version) " +
-                            "VALUES (?, ?, ?, ?, ?, ?::jsonb, ?::jsonb, ?, ?, ?, ?)",
-                    new String[]{"id"}
-            );
-            ps.setLong(1, itemId);
-            ps.setInt(2, receiptVersion);
-            ps.setString(3, q.trim());
-            ps.setString(4, pr.recommendation());
-            ps.setString(5, pr.rationale());
-            ps.setString(6, citationsJson);
-            ps.setString(7, assumptionsJson);
-            ps.setString(8, "llama3.2:3b");
-            ps.setString(9, "nomic-embed-text");
-            ps.setInt(10, topK);
-            ps.setString(11, "receipt-v1");
-            return ps;
-        }, kh);
-
-        long receiptId = kh.getKey().longValue();
+        long receiptId = persisted.receiptId();
+        int receiptVersion = persisted.receiptVersion();
+        metrics.record("receipt", RagMetrics.Stage.PERSIST, chat.model(), System.nanoTime() - persistStarted);
 
         Map<String, Object> resp = new LinkedHashMap<>();
         resp.put("receiptId", receiptId);
@@ -138,23 +202,67 @@ public class ReceiptController {
         resp.put("rationale", pr.rationale());
         resp.put("assumptions", pr.assumptions());
         resp.put("citations", cleanCitations);
-        resp.put("chat_model", "llama3.2:3b");
-        resp.put("embed_model", "nomic-embed-text");
+        resp.put("chat_model", chat.model());
+        resp.put("embed_model", embedder.model());
         resp.put("k_used", topK);
-        resp.put("prompt_version", "receipt-v1");
+        resp.put("prompt_version", Prompts.RECEIPT_VERSION);
         resp.put("receipt_version", receiptVersion);
-        return resp;
+        return new Created(resp, false);
     }
 
-    private static String toPgVector(List<Double> v) {
-        StringBuilder sb = new StringBuilder();
-        sb.append('[');
-        for (int i = 0; i < v.size(); i++) {
-            if (i > 0) sb.append(',');
-            sb.append(v.get(i));
+    /**
+     * The receipt an Idempotency-Key already created, shaped like a fresh createReceipt response,
+     * or null if the key is new.
+     */
+    private Created replay(long itemId, String idemKey, String requestHash) {
+        List<Map<String, Object>> rows = jdbc.queryForList(
+                "SELECT request_hash, receipt_id FROM receipt_idempotency WHERE item_id = ? AND idempotency_key = ?",
+                itemId, idemKey
+        );
+        if (rows.isEmpty()) return null;
+        Map<String, Object> row = rows.get(0);
+        if (!requestHash.equals(row.get("request_hash"))) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Idempotency-Key was already used for a different request");
         }
-        sb.append(']');
-        return sb.toString();
+
+        ReceiptCache.Cached c = receipts.get(((Number) row.get("receipt_id")).longValue());
+        if (c == null) throw new ResponseStatusException(HttpStatus.CONFLICT, "receipt created with this Idempotency-Key was deleted");
+        Map<String, Object> r = c.row();
+
+        Map<String, Object> resp = new LinkedHashMap<>();
+        resp.put("receiptId", r.get("id"));
+        resp.put("itemId", r.get("item_id"));
+        resp.put("question", r.get("question"));
+        resp.put("recommendation", r.get("recommendation"));
+        resp.put("rationale", r.get("rationale"));
+        resp.put("assumptions", mapper.readTree(String.valueOf(r.get("assumptions"))));
+        resp.put("citations", mapper.readTree(String.valueOf(r.get("citations"))));
+        resp.put("chat_model", r.get("chat_model"));
+        resp.put("embed_model", r.get("embed_model"));
+        resp.put("k_used", r.get("k_used"));
+        resp.put("prompt_version", r.get("prompt_version"));
+        resp.put("receipt_version", r.get("receipt_version"));
+        return new Created(resp, true);
+    }
+
+    /** Citations as stored in receipts.citations (no chunk text). */
+    static String citationsJson(List<Map<String, Object>> ctx) {
+        return ctx.stream()
+                .map(r -> String.format("{\"chunkId\":%s,\"sourceId\":%s,\"distance\":%s}",
+                        r.get("id"), r.get("source_id"), r.get("distance")))
+                .reduce((a, b) -> a + "," + b)
+                .map(s -> "[" + s + "]")
+                .orElse("[]");
+    }
+
+    static String assumptionsJson(List<String> assumptions) {
+        return assumptions.isEmpty()
+                ? "[]"
+                : assumptions.stream()
+                .map(a -> "\"" + a.replace("\"", "\\\"") + "\"")
+                .reduce((a, b) -> a + "," + b)
+                .map(s -> "[" + s + "]")
+                .orElse("[]");
     }
 
     record ParsedReceipt(String recommendation, String rationale, List<String> assumptions) {
@@ -179,47 +287,77 @@ public class ReceiptController {
         }
     }
 
+    /**
+     * Keyset pagination over (created_at DESC, id DESC): pass nextCursor from the previous page as
+     * cursor. Each page is one index range scan, so latency does not grow with depth. Rows carry
+     * summary columns unless full=true. total=exact counts matching rows; total=estimate uses the
+     * planner's row estimate (no scan); by default no total is computed.
+     */
     @GetMapping("/receipts")
     public Map listReceipts(
             @PathVariable long itemId,
             @RequestParam(defaultValue = "20") int limit,
-            @RequestParam(defaultValue = "0") int offset,
-            @RequestParam(defaultValue = "false") boolean includeDeleted
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeDeleted,
+            @RequestParam(defaultValue = "false") boolean full,
+            @RequestParam(defaultValue = "none") String total
     ) {
         int safeLimit = Math.max(1, Math.min(limit, 100));
-        int safeOffset = Math.max(0, offset);
+        ReceiptCursor after = (cursor == null || cursor.isBlank()) ? null : ReceiptCursor.decode(cursor);
+        if (!List.of("none", "exact", "estimate").contains(total)) {
+            throw new IllegalArgumentException("total must be none, exact or estimate");
+        }
 
         String where = includeDeleted ? "WHERE item_id = ?" : "WHERE item_id = ? AND deleted_at IS NULL";
-
-        Integer total = jdbc.queryForObject(
-                "SELECT COUNT(*) FROM receipts " + where,
-                Integer.class,
-                itemId
-        );
-        int safeTotal = (total == null) ? 0 : total;
-
-        var rows = jdbc.queryForList(
-                "SELECT id, item_id, created_at, receipt_version, question, recommendation, rationale, " +
+        String columns = full
+                ? "id, item_id, created_at, receipt_version, question, recommendation, rationale, " +
                         "citations::text AS citations, assumptions::text AS assumptions, " +
-                        "chat_model, embed_model, k_used, prompt_version, deleted_at " +
-                        "FROM receipts " +
-                        where + " " +
-                        "ORDER BY created_at DESC, id DESC " +
-                        "LIMIT ? OFFSET ?",
-                itemId, safeLimit, safeOffset
-        );
+                        "chat_model, embed_model, k_used, prompt_version, deleted_at"
+                : "id, item_id, created_at, receipt_version, question, recommendation, deleted_at";
+
+        // one extra row tells whether there is a next page
+        List<Map<String, Object>> rows = after == null
+                ? jdbc.queryForList(
+                        "SELECT " + columns + " FROM receipts " + where + " " +
+                                "ORDER BY created_at DESC, id DESC LIMIT ?",
+                        itemId, safeLimit + 1)
+                : jdbc.queryForList(
+                        "SELECT " + columns + " FROM receipts " + where + " " +
+                                "AND (created_at, id) < (?, ?) " +
+                                "ORDER BY created_at DESC, id DESC LIMIT ?",
+                        itemId, after.createdAtParam(), after.id(), safeLimit + 1);
+
+        String nextCursor = null;
+        if (rows.size() > safeLimit) {
+            rows = rows.subList(0, safeLimit);
+            Map<String, Object> last = rows.get(safeLimit - 1);
+            nextCursor = ReceiptCursor.after((Timestamp) last.get("created_at"), ((Number) last.get("id")).longValue()).encode();
+        }
 
         Map<String, Object> resp = new LinkedHashMap<>();
         resp.put("itemId", itemId);
         resp.put("limit", safeLimit);
-        resp.put("offset", safeOffset);
         resp.put("includeDeleted", includeDeleted);
         resp.put("count", rows.size());
-        resp.put("total", safeTotal);
+        if (total.equals("exact")) {
+            resp.put("total", jdbc.queryForObject("SELECT COUNT(*) FROM receipts " + where, Long.class, itemId));
+        } else if (total.equals("estimate")) {
+            resp.put("totalEstimate", estimateRows("SELECT 1 FROM receipts " + where, itemId));
+        }
+        resp.put("nextCursor", nextCursor);
         resp.put("receipts", rows);
         return resp;
     }
 
+    private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\":\\s*(\\d+)");
+
+    /** Planner row estimate for a query (from table statistics; nothing is scanned). */
+    private long estimateRows(String sql, Object... args) {
+        String plan = jdbc.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, args);
+        Matcher m = PLAN_ROWS.matcher(plan == null ? "" : plan);
+        return m.find() ? Long.parseLong(m.group(1)) : 0;
+    }
+
     @GetMapping("/receipts/latest")
     public Map getLatestReceiptForItem(@PathVariable long itemId) {
         try {
@@ -242,22 +380,12 @@ public class ReceiptController {
     }
 
     @GetMapping("/receipts/{receiptId}")
-    public Map getReceiptForItem(@PathVariable long itemId, @PathVariable long receiptId) {
-        try {
-            return jdbc.queryForMap(
-                    "SELECT id, item_id, created_at, receipt_version, question, recommendation, rationale, " +
-                            "citations::text AS citations, assumptions::text AS assumptions, " +
-                            "chat_model, embed_model, k_used, prompt_version, deleted_at " +
-                            "FROM receipts " +
-                            "WHERE id = ? AND item_id = ? AND deleted_at IS NULL",
-                    receiptId, itemId
-            );
-        } catch (org.springframework.dao.EmptyResultDataAccessException e) {
-            throw new org.springframework.web.server.ResponseStatusException(
-                    org.springframework.http.HttpStatus.NOT_FOUND,
-                    "receipt not found for item"
-            );
-        }
+    public ResponseEntity<Map<String, Object>> getReceiptForItem(@PathVariable long itemId, @PathVariable long receiptId) {
+        ReceiptCache.Cached c = receiptForItem(itemId, receiptId);
+        return ResponseEntity.ok()
+                .eTag(c.jsonEtag())
+                .cacheControl(CacheControl.noCache())
+                .body(c.row());
     }
 
     @DeleteMapping("/receipts/{receiptId}")
@@ -276,6 +404,7 @@ public class ReceiptController {
                     "receipt not found or already deleted"
             );
         }
+        receipts.evict(receiptId);
 
         Map<String, Object> resp = new LinkedHashMap<>();
         resp.put("receiptId", receiptId);
@@ -285,65 +414,21 @@ public class ReceiptController {
     }
 
     @GetMapping("/receipts/{receiptId}/export.md")
-    public org.springframework.http.ResponseEntity<String> exportReceiptMarkdownForItem(
+    public ResponseEntity<String> exportReceiptMarkdownForItem(
             @PathVariable long itemId,
             @PathVariable long receiptId
     ) {
-        try {
-            var row = jdbc.queryForMap(
-                    "SELECT id, item_id, created_at, receipt_version, question, recommendation, rationale, " +
-                            "citations::text AS citations, assumptions::text AS assumptions, " +
-                            "chat_model, embed_model, k_used, prompt_version, deleted_at " +
-                            "FROM receipts WHERE id = ? AND item_id = ? AND deleted_at IS NULL",
-                    receiptId, itemId
-            );
-
-            StringBuilder md = new StringBuilder();
-            md.append("# KeepKind Decision Receipt\n\n");
-            md.append("**Receipt ID:** ").append(row.get("id")).append("\n\n");
-            md.append("**Item ID:** ").append(row.get("item_id")).append("\n\n");
-            md.append("**Created At:** ").append(row.get("created_at")).append("\n\n");
-            md.append("**Receipt Version:** ").append(row.get("receipt_version")).append("\n\n");
-
-            md.append("## Generation metadata\n");
-            md.append("- chat_model: ").append(row.get("chat_model")).append("\n");
-            md.append("- embed_model: ").append(row.get("embed_model")).append("\n");
-            md.append("- k_used: ").append(row.get("k_used")).append("\n");
-            md.append("- prompt_version: ").append(row.get("prompt_version")).append("\n\n");
-
-            md.append("## Question\n");
-            md.append(row.get("question")).append("\n\n");
-
-            md.append("## Recommendation\n");
-            md.append(row.get("recommendation")).append("\n\n");
-
-            md.append("## Rationale\n");
-            md.append(row.get("rationale")).append("\n\n");
-
-            md.append("## Assumptions\n");
-            String assumptions = String.valueOf(row.get("assumptions"));
-            if (assumptions.equals("[]") || assumptions.equalsIgnoreCase("null")) {
-                md.append("none\n\n");
-            } else {
-                md.append(assumptions).append("\n\n");
-            }
-
-            md.append("## Citations\n");
-            md.append("```json\n");
-            md.append(row.get("citations"));
-            md.append("\n```\n");
-
-            return org.springframework.http.ResponseEntity.ok()
-                    .header("Content-Disposition",
-                            "attachment; filename=keepkind-receipt-" + receiptId + ".md")
-                    .contentType(org.springframework.http.MediaType.valueOf("text/markdown"))
-                    .body(md.toString());
+        return ReceiptReadController.markdown(receiptForItem(itemId, receiptId), receiptId);
+    }
 
-        } catch (Exception e) {
+    private ReceiptCache.Cached receiptForItem(long itemId, long receiptId) {
+        ReceiptCache.Cached c = receipts.get(receiptId);
+        if (c == null || c.itemId() != itemId) {
             throw new org.springframework.web.server.ResponseStatusException(
                     org.springframework.http.HttpStatus.NOT_FOUND,
                     "receipt not found for item"
             );
         }
+        return c;
     }
-}
\ No newline at end of file
+}
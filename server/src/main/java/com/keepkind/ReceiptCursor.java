@@ -0,0 +1,50 @@
+package com.keepkind;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Keyset position in a receipt listing ordered by (created_at DESC, id DESC): the last row of the
+ * previous page. Clients see it as an opaque token.
+ */
+public record ReceiptCursor(Instant createdAt, long id) {
+
+    private static final String VERSION = "r1";
+
+    public static ReceiptCursor after(Timestamp createdAt, long id) {
+        return new ReceiptCursor(createdAt.toInstant(), id);
+    }
+
+    public String encode() {
+        // created_at is timestamptz (microseconds); keep exactly that precision
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, createdAt);
+        String raw = VERSION + ":" + micros + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static ReceiptCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            String[] parts = raw.split(":");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) throw new IllegalArgumentException();
+            Instant createdAt = Instant.EPOCH.plus(Long.parseLong(parts[1]), ChronoUnit.MICROS);
+            ReceiptCursor cursor = new ReceiptCursor(createdAt, Long.parseLong(parts[2]));
+            // one token per position: padding, leading zeros, "+" signs and the like are edits
+            if (!cursor.encode().equals(token)) throw new IllegalArgumentException();
+            return cursor;
+        } catch (IllegalArgumentException | ArithmeticException | DateTimeException e) {
+            throw new IllegalArgumentException("invalid cursor");
+        }
+    }
+
+    /** Bind value for created_at: OffsetDateTime is sent as timestamptz, independent of the JVM zone. */
+    public OffsetDateTime createdAtParam() {
+        return OffsetDateTime.ofInstant(createdAt, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,177 @@
+package com.keepkind;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.*;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Bulk receipt export for audits: every receipt of the given items and/or created in [from, to),
+ * as a ZIP of Markdown files (one per receipt, under item-{id}/) or as NDJSON rows.
+ * <p>
+ * Rows are read through a server-side cursor (fetchSize inside a read-only transaction) and
+ * written to the response as they arrive, so memory stays flat however many receipts match.
+ */
+@RestController
+@RequestMapping("/receipts")
+public class ReceiptExportController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptExportController.class);
+
+    private static final int MAX_ITEM_IDS = 10_000;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate readOnlyTx;
+    private final ObjectMapper mapper;
+    private final int fetchSize;
+
+    public ReceiptExportController(
+            JdbcTemplate jdbc,
+            TransactionTemplate tx,
+            ObjectMapper mapper,
+            @Value("${keepkind.receipts.export.fetchSize:500}") int fetchSize
+    ) {
+        this.jdbc = jdbc;
+        this.readOnlyTx = new TransactionTemplate(tx.getTransactionManager());
+        this.readOnlyTx.setReadOnly(true);
+        this.mapper = mapper;
+        this.fetchSize = Math.max(1, fetchSize);
+    }
+
+    /**
+     * @param itemId         one or more items (repeat the parameter or comma-separate); all items if absent
+     * @param from           inclusive lower bound on created_at (ISO instant/offset date-time, or a date = start of day UTC)
+     * @param to             exclusive upper bound on created_at, same formats
+     * @param format         zip (Markdown files) or ndjson
+     * @param includeDeleted also export soft-deleted receipts
+     */
+    @GetMapping("/export")
+    public void exportReceipts(
+            @RequestParam(required = false) List<Long> itemId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "zip") String format,
+            @RequestParam(defaultValue = "false") boolean includeDeleted,
+            HttpServletResponse response
+    ) throws IOException {
+        if (!format.equals("zip") && !format.equals("ndjson")) {
+            throw new IllegalArgumentException("format must be zip or ndjson");
+        }
+        if (itemId != null && itemId.size() > MAX_ITEM_IDS) {
+            throw new IllegalArgumentException("at most " + MAX_ITEM_IDS + " itemId values");
+        }
+        OffsetDateTime fromTs = parseBound("from", from);
+        OffsetDateTime toTs = parseBound("to", to);
+
+        List<String> where = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (itemId != null && !itemId.isEmpty()) {
+            where.add("item_id = ANY(?)");
+            args.add(itemId.toArray(new Long[0]));
+        }
+        if (fromTs != null) {
+            where.add("created_at >= ?");
+            args.add(fromTs);
+        }
+        if (toTs != null) {
+            where.add("created_at < ?");
+            args.add(toTs);
+        }
+        if (!includeDeleted) where.add("deleted_at IS NULL");
+
+        String sql = "SELECT id, item_id, created_at, receipt_version, question, recommendation, rationale, " +
+                "citations::text AS citations, assumptions::text AS assumptions, " +
+                "chat_model, embed_model, k_used, prompt_version, deleted_at " +
+                "FROM receipts" +
+                (where.isEmpty() ? "" : " WHERE " + String.join(" AND ", where)) +
+                " ORDER BY item_id, created_at, id";
+
+        boolean zip = format.equals("zip");
+        response.setContentType(zip ? "application/zip" : "application/x-ndjson");
+        if (!zip) response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition",
+                "attachment; filename=keepkind-receipts." + (zip ? "zip" : "ndjson"));
+
+        long started = System.nanoTime();
+        OutputStream raw = response.getOutputStream();
+        ZipOutputStream zipOut = zip ? new ZipOutputStream(raw, StandardCharsets.UTF_8) : null;
+        ColumnMapRowMapper rowMapper = new ColumnMapRowMapper();
+        long[] count = {0};
+
+        RowCallbackHandler writer = rs -> {
+            Map<String, Object> row = rowMapper.mapRow(rs, (int) count[0]);
+            try {
+                if (zip) {
+                    long id = ((Number) row.get("id")).longValue();
+                    zipOut.putNextEntry(new ZipEntry("item-" + row.get("item_id") + "/" + ReceiptMarkdown.filename(id)));
+                    zipOut.write(ReceiptMarkdown.render(row).getBytes(StandardCharsets.UTF_8));
+                    zipOut.closeEntry();
+                } else {
+                    raw.write(mapper.writeValueAsBytes(ndjsonRow(row)));
+                    raw.write('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count[0]++;
+        };
+
+        // Postgres only streams with a fetch size when autocommit is off, hence the transaction
+        readOnlyTx.executeWithoutResult(status -> jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < args.size(); i++) {
+                Object a = args.get(i);
+                if (a instanceof Long[] ids) ps.setArray(i + 1, con.createArrayOf("bigint", ids));
+                else ps.setObject(i + 1, a);
+            }
+            return ps;
+        }, writer));
+
+        if (zipOut != null) zipOut.finish();
+        raw.flush();
+        log.info("Receipt export ({}): {} receipts in {} ms", format, count[0], (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /** Receipt row with citations/assumptions as JSON values rather than JSON text. */
+    private Map<String, Object> ndjsonRow(Map<String, Object> row) {
+        Map<String, Object> out = new LinkedHashMap<>(row);
+        for (String key : new String[]{"citations", "assumptions"}) {
+            Object v = row.get(key);
+            if (v != null) out.put(key, mapper.readTree(v.toString()));
+        }
+        return out;
+    }
+
+    private static OffsetDateTime parseBound(String name, String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            if (value.length() == 10) return LocalDate.parse(value).atStartOfDay().atOffset(ZoneOffset.UTC);
+            return OffsetDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be an ISO date or date-time with offset");
+        }
+    }
+}
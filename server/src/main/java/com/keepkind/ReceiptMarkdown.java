@@ -0,0 +1,57 @@
+package com.keepkind;
+
+import java.util.Map;
+
+/**
+ * Markdown rendering of a receipt row (columns as selected by the receipt endpoints, with
+ * citations and assumptions as JSON text). Shared by the single-receipt and bulk exports.
+ */
+public final class ReceiptMarkdown {
+
+    /** Bump when the layout changes, so ETags of earlier renderings stop matching. */
+    public static final int VERSION = 1;
+
+    private ReceiptMarkdown() {}
+
+    public static String render(Map<String, Object> row) {
+        StringBuilder md = new StringBuilder(1024);
+        md.append("# KeepKind Decision Receipt\n\n");
+        md.append("**Receipt ID:** ").append(row.get("id")).append("\n\n");
+        md.append("**Item ID:** ").append(row.get("item_id")).append("\n\n");
+        md.append("**Created At:** ").append(row.get("created_at")).append("\n\n");
+        md.append("**Receipt Version:** ").append(row.get("receipt_version")).append("\n\n");
+
+        md.append("## Generation metadata\n");
+        md.append("- chat_model: ").append(row.get("chat_model")).append("\n");
+        md.append("- embed_model: ").append(row.get("embed_model")).append("\n");
+        md.append("- k_used: ").append(row.get("k_used")).append("\n");
+        md.append("- prompt_version: ").append(row.get("prompt_version")).append("\n\n");
+
+        md.append("## Question\n");
+        md.append(row.get("question")).append("\n\n");
+
+        md.append("## Recommendation\n");
+        md.append(row.get("recommendation")).append("\n\n");
+
+        md.append("## Rationale\n");
+        md.append(row.get("rationale")).append("\n\n");
+
+        md.append("## Assumptions\n");
+        String assumptions = String.valueOf(row.get("assumptions"));
+        if ("[]".equals(assumptions) || "null".equalsIgnoreCase(assumptions)) {
+            md.append("none\n\n");
+        } else {
+            md.append(assumptions).append("\n\n");
+        }
+
+        md.append("## Citations\n");
+        md.append("```json\n");
+        md.append(row.get("citations"));
+        md.append("\n```\n");
+        return md.toString();
+    }
+
+    public static String filename(long receiptId) {
+        return "keepkind-receipt-" + receiptId + ".md";
+    }
+}
@@ -1,93 +1,62 @@
 // server/src/main/java/com/keepkind/ReceiptReadController.java
 package com.keepkind;
 
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * Receipts are immutable once created, so reads and exports carry strong ETags (If-None-Match
+ * gets a 304) and are served from {@link ReceiptCache}. Both are no-cache, i.e. revalidated on
+ * every use, because a receipt can still be deleted.
+ */
 @RestController
 @RequestMapping("/receipts")
 public class ReceiptReadController {
 
-    private final JdbcTemplate jdbc;
+    private final ReceiptCache receipts;
 
-    public ReceiptReadController(JdbcTemplate jdbc) {
-        this.jdbc = jdbc;
+    public ReceiptReadController(ReceiptCache receipts) {
+        this.receipts = receipts;
     }
 
     @GetMapping("/{receiptId}")
-    public Map getReceipt(@PathVariable long receiptId) {
-        try {
-            return jdbc.queryForMap(
-                    "SELECT id, item_id, created_at, receipt_version, question, recommendation, rationale, " +
-                            "citations::text AS citations, assumptions::text AS assumptions, " +
-                            "chat_model, embed_model, k_used, prompt_version " +
-                            "FROM receipts " +
-                            "WHERE id = ? AND deleted_at IS NULL",
-                    receiptId
-            );
-        } catch (EmptyResultDataAccessException e) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "receipt not found");
-        }
+    public ResponseEntity<Map<String, Object>> getReceipt(@PathVariable long receiptId) {
+        ReceiptCache.Cached c = receipts.get(receiptId);
+        if (c == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "receipt not found");
+
+        Map<String, Object> body = new LinkedHashMap<>(c.row());
+        body.remove("deleted_at");
+        // revalidate every time (a receipt can be deleted), but a match costs no body
+        return ResponseEntity.ok()
+                .eTag(c.jsonEtag())
+                .cacheControl(CacheControl.noCache())
+                .body(body);
     }
 
     @GetMapping("/{receiptId}/export.md")
-    public org.springframework.http.ResponseEntity<String> exportReceiptMarkdown(@PathVariable long receiptId) {
-        try {
-            var row = jdbc.queryForMap(
-                    "SELECT id, item_id, created_at, receipt_version, question, recommendation, rationale, " +
-                            "citations::text AS citations, assumptions::text AS assumptions, " +
-                            "chat_model, embed_model, k_used, prompt_version " +
-                            "FROM receipts WHERE id = ? AND deleted_at IS NULL",
-                    receiptId
-            );
-
-            StringBuilder md = new StringBuilder();
-            md.append("# KeepKind Decision Receipt\n\n");
-            md.append("**Receipt ID:** ").append(row.get("id")).append("\n\n");
-            md.append("**Item ID:** ").append(row.get("item_id")).append("\n\n");
-            md.append("**Created At:** ").append(row.get("created_at")).append("\n\n");
-            md.append("**Receipt Version:** ").append(row.get("receipt_version")).append("\n\n");
-
-            md.append("## Generation metadata\n");
-            md.append("- chat_model: ").append(row.get("chat_model")).append("\n");
-            md.append("- embed_model: ").append(row.get("embed_model")).append("\n");
-            md.append("- k_used: ").append(row.get("k_used")).append("\n");
-            md.append("- prompt_version: ").append(row.get("prompt_version")).append("\n\n");
-
-            md.append("## Question\n");
-            md.append(row.get("question")).append("\n\n");
-
-            md.append("## Recommendation\n");
-            md.append(row.get("recommendation")).append("\n\n");
-
-            md.append("## Rationale\n");
-            md.append(row.get("rationale")).append("\n\n");
-
-            md.append("## Assumptions\n");
-            String assumptions = String.valueOf(row.get("assumptions"));
-            if ("[]".equals(assumptions) || "null".equalsIgnoreCase(assumptions)) {
-                md.append("none\n\n");
-            } else {
-                md.append(assumptions).append("\n\n");
-            }
-
-            md.append("## Citations\n");
-            md.append("```json\n");
-            md.append(row.get("citations"));
-            md.append("\n```\n");
-
-            return org.springframework.http.ResponseEntity.ok()
-                    .header("Content-Disposition", "attachment; filename=keepkind-receipt-" + receiptId + ".md")
-                    .contentType(org.springframework.http.MediaType.valueOf("text/markdown"))
-                    .body(md.toString());
+    public ResponseEntity<String> exportReceiptMarkdown(@PathVariable long receiptId) {
+        ReceiptCache.Cached c = receipts.get(receiptId);
+        if (c == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "receipt not found");
+        return markdown(c, receiptId);
+    }
 
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "receipt not found");
-        }
+    /**
+     * Not cacheable for a fixed time: shared caches would keep serving a deleted receipt. The
+     * ETag makes revalidation cheap.
+     */
+    static ResponseEntity<String> markdown(ReceiptCache.Cached c, long receiptId) {
+        return ResponseEntity.ok()
+                .header("Content-Disposition", "attachment; filename=" + ReceiptMarkdown.filename(receiptId))
+                .contentType(MediaType.valueOf("text/markdown"))
+                .eTag(c.markdownEtag())
+                .cacheControl(CacheControl.noCache())
+                .body(c.markdown());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,14 @@
+package com.keepkind;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Coalesces identical receipt requests in flight; shared by {@link ReceiptController} and the meters.
+ */
+@Component
+public class ReceiptSingleFlight extends SingleFlight<ReceiptController.Created> {
+
+    public ReceiptSingleFlight() {
+        super("receipt");
+    }
+}
@@ -0,0 +1,36 @@
+package com.keepkind;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hands out receipt_version per item from receipt_counters: one upsert on the item's row, no
+ * scan of its receipts. Call it in the transaction that inserts the receipt. The row stays locked
+ * until commit, so concurrent receipts for the same item get consecutive versions, and a rollback
+ * returns the version.
+ */
+@Component
+public class ReceiptVersions {
+
+    private final JdbcTemplate jdbc;
+
+    public ReceiptVersions(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public int next(long itemId) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("receipt versions must be allocated inside the receipt insert transaction");
+        }
+        Integer v = jdbc.queryForObject(
+                "INSERT INTO receipt_counters(item_id, last_version) VALUES (?, 1) " +
+                        "ON CONFLICT (item_id) DO UPDATE SET last_version = receipt_counters.last_version + 1 " +
+                        "RETURNING last_version",
+                Integer.class,
+                itemId
+        );
+        if (v == null) throw new IllegalStateException("no receipt version returned for item " + itemId);
+        return v;
+    }
+}
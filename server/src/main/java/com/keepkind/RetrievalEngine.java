@@ -0,0 +1,67 @@
+package com.keepkind;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Nearest-chunk lookup for an item. Selected per deployment with keepkind.retrieval.engine
+ * (pgvector | hnsw).
+ */
+public interface RetrievalEngine {
+
+    /**
+     * vector: embedding similarity only. hybrid: embedding and full-text rankings fused, so exact
+     * tokens (part numbers, model codes) rank even when the embedding misses them.
+     */
+    enum Mode {
+        VECTOR, HYBRID;
+
+        static Mode parse(String mode) {
+            try {
+                return valueOf(mode.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("mode must be vector or hybrid");
+            }
+        }
+    }
+
+    String name();
+
+    /**
+     * @return up to k chunks of the item, nearest first, as rows with
+     *         id, source_id, chunk_index, content and distance (cosine)
+     */
+    default List<Map<String, Object>> search(long itemId, float[] query, int k) {
+        return search(itemId, query, k, null);
+    }
+
+    /**
+     * @param efSearch HNSW candidate list size for this query (higher = better recall, slower);
+     *                 null uses the engine's configured default
+     */
+    List<Map<String, Object>> search(long itemId, float[] query, int k, Integer efSearch);
+
+    /**
+     * Vector and keyword (text) rankings fused by reciprocal rank fusion, best first. Rows are as
+     * for {@link #search} plus vector_rank, keyword_rank (null when not in that list) and score.
+     */
+    List<Map<String, Object>> hybridSearch(long itemId, String text, float[] query, int k, Integer efSearch);
+
+    default List<Map<String, Object>> search(Mode mode, long itemId, String text, float[] query, int k, Integer efSearch) {
+        return mode == Mode.HYBRID
+                ? hybridSearch(itemId, text, query, k, efSearch)
+                : search(itemId, query, k, efSearch);
+    }
+
+    /**
+     * Called after embeddings for these chunks of the item have been committed.
+     */
+    default void onChunksEmbedded(long itemId, List<Long> chunkIds) {}
+
+    /**
+     * Called after these chunks of the item have been deleted. Engines that search an in-memory
+     * copy must also cope with chunks deleted behind their back (e.g. by hand in psql).
+     */
+    default void onChunksDeleted(long itemId, List<Long> chunkIds) {}
+}
@@ -1,14 +1,29 @@
 package com.keepkind;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
-import java.sql.PreparedStatement;
 import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -16,14 +31,41 @@ import java.util.Map;
 public class SourceController {
 
     private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
     private final ChunkService chunkService;
+    private final EmbeddingJobService embeddingJobs;
+    private final RetrievalEngine retrieval;
+    private final boolean autoEmbed;
+    private final DataSize maxUploadSize;
 
-    public SourceController(JdbcTemplate jdbc, ChunkService chunkService) {
+    public SourceController(
+            JdbcTemplate jdbc,
+            TransactionTemplate tx,
+            ChunkService chunkService,
+            EmbeddingJobService embeddingJobs,
+            RetrievalEngine retrieval,
+            @Value("${keepkind.jobs.autoEmbed:false}") boolean autoEmbed,
+            @Value("${keepkind.ingest.maxUploadSize:200MB}") DataSize maxUploadSize
+    ) {
     	this.jdbc = jdbc;
+    	this.tx = tx;
     	this.chunkService = chunkService;
+    	this.embeddingJobs = embeddingJobs;
+    	this.retrieval = retrieval;
+    	this.autoEmbed = autoEmbed;
+    	this.maxUploadSize = maxUploadSize;
     }
 
-    public record AddTextSourceRequest(String title, String text, String trustLevel) {}
+    /**
+     * @param embed queue an embedding job right after chunking; defaults to keepkind.jobs.autoEmbed
+     */
+    public record AddTextSourceRequest(String title, String text, String trustLevel, Boolean embed) {}
+
+    /** The source this item already has with the same content. */
+    private record Existing(long sourceId, String uri, String trustLevel) {}
+
+    /** duplicateOf is set (and nothing was written) when the item already had this document. */
+    private record Ingested(long sourceId, Existing duplicateOf, Long donorSourceId, List<Long> reusedChunkIds, int created) {}
 
     @PostMapping("/text")
     public Map<String, Object> addText(@PathVariable long itemId, @RequestBody AddTextSourceRequest req) {
@@ -34,34 +76,244 @@ public class SourceController {
         String uri = (req.title() == null || req.title().isBlank()) ? "text-source" : req.title().trim();
         String trust = (req.trustLevel() == null || req.trustLevel().isBlank()) ? "normal" : req.trustLevel().trim();
 
-        String hash = sha256(req.text());
-
-        KeyHolder kh = new GeneratedKeyHolder();
-        jdbc.update(con -> {
-            PreparedStatement ps = con.prepareStatement(
-                "INSERT INTO sources(item_id, type, uri, trust_level, content_hash) VALUES (?, 'text', ?, ?, ?)",
-                new String[]{"id"}
-            );
-            ps.setLong(1, itemId);
-            ps.setString(2, uri);
-            ps.setString(3, trust);
-            ps.setString(4, hash);
-            return ps;
-        }, kh);
-
-        Number id = kh.getKey();
-	var parts = chunkService.chunk(req.text(), 800, 120);
-	chunkService.insertChunks(itemId, id.longValue(), parts);
-        return Map.of( "sourceId", id.longValue(), "itemId", itemId, "type", "text", "uri", uri, "contentHash", hash, "chunksCreated", parts.size());
+        String hash = ContentHash.sha256(req.text());
+        boolean embed = req.embed() != null ? req.embed() : autoEmbed;
+
+        // Source row and its chunks commit together: a failure leaves no half-chunked source
+        long started = System.nanoTime();
+        Ingested ingested = tx.execute(status -> {
+            // 1) Same document already attached to this item: return that source instead of a copy
+            Long sourceId = claimSource(itemId, "text", uri, trust, hash);
+            if (sourceId == null) {
+                Existing existing = existing(itemId, hash);
+                return new Ingested(existing.sourceId(), existing, null, List.of(), 0);
+            }
+
+            // 2) Same document on another item: copy its chunks (and any vectors) instead of re-chunking
+            Long donor = chunkService.findDonor(hash, sourceId);
+            if (donor != null) {
+                return new Ingested(sourceId, null, donor, chunkService.copyChunks(itemId, sourceId, donor), 0);
+            }
+            int created = chunkService.insertChunks(itemId, sourceId, chunkService.chunk(req.text(), 800, 120));
+            return new Ingested(sourceId, null, null, List.of(), created);
+        });
+        long elapsedNanos = System.nanoTime() - started;
+
+        long sourceId = ingested.sourceId();
+        if (ingested.duplicateOf() != null) {
+            return deduplicated(itemId, "text", hash, ingested.duplicateOf(), uri, trust, embed);
+        }
+        if (!ingested.reusedChunkIds().isEmpty()) retrieval.onChunksEmbedded(itemId, ingested.reusedChunkIds());
+        int rows = ingested.created() + ingested.reusedChunkIds().size();
+
+        Map<String, Object> resp = new LinkedHashMap<>();
+        resp.put("sourceId", sourceId);
+        resp.put("itemId", itemId);
+        resp.put("type", "text");
+        resp.put("uri", uri);
+        resp.put("trustLevel", trust);
+        resp.put("contentHash", hash);
+        resp.put("deduplicated", false);
+        resp.put("chunksCreated", ingested.created());
+        resp.put("chunksReused", ingested.reusedChunkIds().size());
+        if (ingested.donorSourceId() != null) resp.put("reusedFromSourceId", ingested.donorSourceId());
+        resp.put("ingestMs", elapsedNanos / 1_000_000);
+        resp.put("rowsPerSec", elapsedNanos == 0 ? 0 : Math.round(rows * 1e9 / elapsedNanos));
+        if (embed) resp.put("embedJobId", embeddingJobs.enqueue(sourceId));
+        return resp;
+    }
+
+    /**
+     * Upload a document as the raw request body (text/plain, text/markdown or
+     * application/octet-stream, UTF-8). The body is streamed to a temp file and chunked from
+     * there, so memory stays flat whatever the size.
+     */
+    @PostMapping(value = "/file", consumes = {MediaType.TEXT_PLAIN_VALUE, MediaType.TEXT_MARKDOWN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public Map<String, Object> uploadRaw(
+            @PathVariable long itemId,
+            InputStream body,
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) String trustLevel,
+            @RequestParam(required = false) Boolean embed
+    ) {
+        return ingestStream(itemId, body, title, trustLevel, embed);
+    }
+
+    /**
+     * Same as the raw upload, as multipart/form-data with a "file" part.
+     */
+    @PostMapping(value = "/file", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Map<String, Object> uploadMultipart(
+            @PathVariable long itemId,
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) String trustLevel,
+            @RequestParam(required = false) Boolean embed
+    ) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return ingestStream(itemId, in, title != null ? title : file.getOriginalFilename(), trustLevel, embed);
+        }
     }
 
-    private static String sha256(String s) {
+    /**
+     * The upload is first spooled to a temp file (bounded by keepkind.ingest.maxUploadSize) while
+     * it is hashed, with no database connection held however slowly the client sends it. Then one
+     * short transaction does what addText does: return the item's existing copy, copy the chunks
+     * of the same document on another item, or chunk the file from disk.
+     */
+    private Map<String, Object> ingestStream(long itemId, InputStream body, String title, String trustLevel, Boolean embedParam) {
+        String uri = (title == null || title.isBlank()) ? "upload" : title.trim();
+        String trust = (trustLevel == null || trustLevel.isBlank()) ? "normal" : trustLevel.trim();
+        boolean embed = embedParam != null ? embedParam : autoEmbed;
+
+        long started = System.nanoTime();
+        Path spool = null;
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(s.getBytes(StandardCharsets.UTF_8));
-            return HexFormat.of().formatHex(digest);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            spool = Files.createTempFile("keepkind-upload-", ".txt");
+            MessageDigest digest = ContentHash.newDigest();
+            long bytes;
+            try (InputStream in = new DigestInputStream(new CountingInputStream(body, maxUploadSize.toBytes()), digest);
+                 OutputStream out = Files.newOutputStream(spool)) {
+                bytes = in.transferTo(out);
+            }
+            if (bytes == 0) throw new IllegalArgumentException("file is empty");
+            String hash = HexFormat.of().formatHex(digest.digest());
+
+            Path file = spool;
+            Ingested ingested = tx.execute(status -> {
+                Long sourceId = claimSource(itemId, "file", uri, trust, hash);
+                if (sourceId == null) {
+                    Existing existing = existing(itemId, hash);
+                    return new Ingested(existing.sourceId(), existing, null, List.of(), 0);
+                }
+                Long donor = chunkService.findDonor(hash, sourceId);
+                if (donor != null) {
+                    return new Ingested(sourceId, null, donor, chunkService.copyChunks(itemId, sourceId, donor), 0);
+                }
+                int created;
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    created = chunkService.insertChunks(itemId, sourceId, reader, 800, 120);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (created == 0) throw new IllegalArgumentException("file is empty");
+                return new Ingested(sourceId, null, null, List.of(), created);
+            });
+            long elapsedNanos = System.nanoTime() - started;
+
+            if (ingested.duplicateOf() != null) {
+                Map<String, Object> resp = deduplicated(itemId, "file", hash, ingested.duplicateOf(), uri, trust, embed);
+                resp.put("bytes", bytes);
+                return resp;
+            }
+            if (!ingested.reusedChunkIds().isEmpty()) retrieval.onChunksEmbedded(itemId, ingested.reusedChunkIds());
+            int rows = ingested.created() + ingested.reusedChunkIds().size();
+
+            Map<String, Object> resp = new LinkedHashMap<>();
+            resp.put("sourceId", ingested.sourceId());
+            resp.put("itemId", itemId);
+            resp.put("type", "file");
+            resp.put("uri", uri);
+            resp.put("trustLevel", trust);
+            resp.put("contentHash", hash);
+            resp.put("deduplicated", false);
+            resp.put("bytes", bytes);
+            resp.put("chunksCreated", ingested.created());
+            resp.put("chunksReused", ingested.reusedChunkIds().size());
+            if (ingested.donorSourceId() != null) resp.put("reusedFromSourceId", ingested.donorSourceId());
+            resp.put("ingestMs", elapsedNanos / 1_000_000);
+            resp.put("rowsPerSec", elapsedNanos == 0 ? 0 : Math.round(rows * 1e9 / elapsedNanos));
+            if (embed) resp.put("embedJobId", embeddingJobs.enqueue(ingested.sourceId()));
+            return resp;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (spool != null) {
+                try {
+                    Files.deleteIfExists(spool);
+                } catch (IOException ignored) {
+                    // temp dir cleanup will get it
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts the source unless the item already has one with this content hash, which the unique
+     * index (item_id, content_hash) decides even for concurrent requests.
+     *
+     * @return the new source id, or null if the item already has this document
+     */
+    private Long claimSource(long itemId, String type, String uri, String trust, String hash) {
+        List<Long> ids = jdbc.queryForList(
+                "INSERT INTO sources(item_id, type, uri, trust_level, content_hash) VALUES (?, ?, ?, ?, ?) " +
+                        "ON CONFLICT (item_id, content_hash) WHERE content_hash IS NOT NULL DO NOTHING " +
+                        "RETURNING id",
+                Long.class,
+                itemId, type, uri, trust, hash
+        );
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    private Existing existing(long itemId, String hash) {
+        Map<String, Object> row = jdbc.queryForMap(
+                "SELECT id, uri, trust_level FROM sources WHERE item_id = ? AND content_hash = ?",
+                itemId, hash
+        );
+        return new Existing(((Number) row.get("id")).longValue(), (String) row.get("uri"), (String) row.get("trust_level"));
+    }
+
+    /**
+     * Response for a document the item already had: the stored source as it is, and what this
+     * request asked for when that differs (the existing title and trust level are kept).
+     */
+    private Map<String, Object> deduplicated(long itemId, String type, String hash, Existing existing,
+                                             String uri, String trust, boolean embed) {
+        Map<String, Object> resp = new LinkedHashMap<>();
+        resp.put("sourceId", existing.sourceId());
+        resp.put("itemId", itemId);
+        resp.put("type", type);
+        resp.put("uri", existing.uri());
+        resp.put("trustLevel", existing.trustLevel());
+        resp.put("contentHash", hash);
+        resp.put("deduplicated", true);
+        if (!uri.equals(existing.uri())) resp.put("requestedUri", uri);
+        if (!trust.equals(existing.trustLevel())) resp.put("requestedTrustLevel", trust);
+        resp.put("chunksCreated", 0);
+        resp.put("chunksReused", 0);
+        if (embed) resp.put("embedJobId", embeddingJobs.enqueue(existing.sourceId()));
+        return resp;
+    }
+
+    /** Counts bytes read and rejects the upload once it exceeds keepkind.ingest.maxUploadSize. */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+
+        CountingInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) advance(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) advance(n);
+            return n;
+        }
+
+        private void advance(int n) {
+            count += n;
+            if (count > limit) {
+                throw new ResponseStatusException(HttpStatus.CONTENT_TOO_LARGE, "upload exceeds " + limit + " bytes");
+            }
         }
     }
 }
@@ -0,0 +1,137 @@
+package com.keepkind;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+/**
+ * Single-pass chunker: reads characters once, normalizes whitespace as it goes and hands each
+ * chunk to a consumer, so only about one chunk of text is held at a time.
+ * <p>
+ * Whitespace runs become one space, or one newline when the run contains a blank line (a
+ * paragraph break). A chunk is cut at the last paragraph break in its second half, else the last
+ * sentence end, else the last space, else at chunkSize. The next chunk starts up to
+ * {@code overlap} characters earlier, at a sentence start if there is one in that window,
+ * otherwise at a word start.
+ */
+public final class TextChunker {
+
+    private final int chunkSize;
+    private final int overlap;
+
+    public TextChunker(int chunkSize, int overlap) {
+        if (chunkSize < 2) throw new IllegalArgumentException("chunkSize must be at least 2");
+        if (overlap < 0 || overlap >= chunkSize / 2) {
+            throw new IllegalArgumentException("overlap must be between 0 and chunkSize / 2");
+        }
+        this.chunkSize = chunkSize;
+        this.overlap = overlap;
+    }
+
+    public void chunk(Reader in, Consumer<String> out) throws IOException {
+        Run run = new Run(out);
+        char[] buf = new char[8192];
+        for (int n; (n = in.read(buf)) != -1; ) {
+            for (int i = 0; i < n; i++) run.accept(buf[i]);
+        }
+        run.finish();
+    }
+
+    public void chunk(CharSequence text, Consumer<String> out) {
+        Run run = new Run(out);
+        for (int i = 0, n = text.length(); i < n; i++) run.accept(text.charAt(i));
+        run.finish();
+    }
+
+    private final class Run {
+        private final Consumer<String> out;
+        private final StringBuilder buf = new StringBuilder(chunkSize * 2);
+        // whitespace seen since the last visible char: 0 none, 1 space, 2 newline, 3 blank line
+        private int pendingSpace;
+        // buf[0, carried) is overlap already emitted with the previous chunk
+        private int carried;
+
+        Run(Consumer<String> out) {
+            this.out = out;
+        }
+
+        void accept(char c) {
+            if (Character.isWhitespace(c)) {
+                if (buf.length() == 0) return; // leading whitespace
+                if (c == '\n') pendingSpace = pendingSpace >= 2 ? 3 : 2;
+                else if (pendingSpace == 0) pendingSpace = 1;
+                return;
+            }
+            if (pendingSpace != 0) {
+                buf.append(pendingSpace == 3 ? '\n' : ' ');
+                pendingSpace = 0;
+            }
+            buf.append(c);
+            if (buf.length() > chunkSize) cut();
+        }
+
+        void finish() {
+            if (buf.length() > carried) out.accept(buf.toString());
+        }
+
+        private void cut() {
+            int end = cutPoint();
+            out.accept(buf.substring(0, end));
+
+            int start = end;
+            if (overlap > 0) start = overlapStart(end);
+            // skip the separator at the new start
+            while (start < buf.length() && isSeparator(buf.charAt(start))) start++;
+            buf.delete(0, start);
+            carried = Math.max(0, end - start);
+        }
+
+        /** Index to cut at; buf[end] is the separator (or first char of the next chunk). */
+        private int cutPoint() {
+            int min = chunkSize / 2;
+            int sentence = -1;
+            int space = -1;
+            for (int i = chunkSize; i >= min; i--) {
+                char c = buf.charAt(i);
+                if (c == '\n') return i;
+                if (c == ' ') {
+                    if (sentence < 0 && endsSentence(i)) sentence = i;
+                    if (space < 0) space = i;
+                }
+            }
+            if (sentence >= 0) return sentence;
+            if (space >= 0) return space;
+            return chunkSize;
+        }
+
+        /** Earliest sentence start in [end - overlap, end), else earliest word start, else end. */
+        private int overlapStart(int end) {
+            int from = Math.max(1, end - overlap);
+            int word = -1;
+            for (int i = from; i < end; i++) {
+                char prev = buf.charAt(i - 1);
+                if (!isSeparator(prev)) continue;
+                if (prev == '\n' || endsSentence(i - 1)) return i;
+                if (word < 0) word = i;
+            }
+            return word >= 0 ? word : end;
+        }
+
+        /** True if the separator at i follows a sentence end (".", "!", "?", optionally closed by a quote or bracket). */
+        private boolean endsSentence(int i) {
+            int j = i - 1;
+            if (j >= 0 && isCloser(buf.charAt(j))) j--;
+            if (j < 0) return false;
+            char c = buf.charAt(j);
+            return c == '.' || c == '!' || c == '?';
+        }
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\n';
+    }
+
+    private static boolean isCloser(char c) {
+        return c == '"' || c == '\'' || c == ')' || c == ']' || c == '\u201D' || c == '\u2019';
+    }
+}
@@ -0,0 +1,71 @@
+package com.keepkind;
+
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The one place embeddings change representation.
+ *
+ * <p>Ollama responses are streamed straight into float[] (no Map, no boxed Double). Going to
+ * Postgres, pass the float[] itself as the JDBC parameter and cast it with {@code ?::vector}:
+ * the driver sends a float[] as a binary float4[] (4 bytes per dimension), which pgvector
+ * casts to vector without parsing decimal text.
+ */
+@Component
+public class VectorCodec {
+
+    private static final int DIMS_HINT = 768;
+
+    private final ObjectMapper mapper;
+
+    public VectorCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Reads the "embeddings" array of an Ollama /api/embed response body.
+     */
+    public float[][] decodeEmbeddings(InputStream body) {
+        try (JsonParser p = mapper.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalStateException("Expected JSON object from /api/embed");
+            }
+            float[][] out = null;
+            while (p.nextToken() == JsonToken.PROPERTY_NAME) {
+                String name = p.currentName();
+                p.nextToken();
+                if ("embeddings".equals(name)) {
+                    out = readMatrix(p);
+                } else {
+                    p.skipChildren();
+                }
+            }
+            if (out == null) throw new IllegalStateException("Missing embeddings in response");
+            return out;
+        }
+    }
+
+    private static float[][] readMatrix(JsonParser p) {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            throw new IllegalStateException("embeddings is not an array");
+        }
+        List<float[]> rows = new ArrayList<>();
+        while (p.nextToken() == JsonToken.START_ARRAY) {
+            float[] v = new float[rows.isEmpty() ? DIMS_HINT : rows.get(0).length];
+            int n = 0;
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                if (n == v.length) v = Arrays.copyOf(v, v.length * 2);
+                v[n++] = p.getFloatValue();
+            }
+            rows.add(n == v.length ? v : Arrays.copyOf(v, n));
+        }
+        return rows.toArray(new float[0][]);
+    }
+}
@@ -1,6 +1,5 @@
 package com.keepkind;
 
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -10,11 +9,11 @@ import java.util.Map;
 @RequestMapping("/items/{itemId}/vector")
 public class VectorSearchController {
 
-    private final JdbcTemplate jdbc;
+    private final RetrievalEngine retrieval;
     private final OllamaEmbeddingClient embedder;
 
-    public VectorSearchController(JdbcTemplate jdbc, OllamaEmbeddingClient embedder) {
-        this.jdbc = jdbc;
+    public VectorSearchController(RetrievalEngine retrieval, OllamaEmbeddingClient embedder) {
+        this.retrieval = retrieval;
         this.embedder = embedder;
     }
 
@@ -22,32 +21,21 @@ public class VectorSearchController {
     public List<Map<String, Object>> search(
             @PathVariable long itemId,
             @RequestParam String q,
-            @RequestParam(defaultValue = "5") int k
+            @RequestParam(defaultValue = "5") int k,
+            @RequestParam(required = false) Integer ef,
+            @RequestParam(defaultValue = "${keepkind.retrieval.mode:vector}") String mode
     ) {
         if (q == null || q.trim().isEmpty()) throw new IllegalArgumentException("q is required");
         int topK = Math.max(1, Math.min(k, 20));
+        RetrievalEngine.Mode searchMode = RetrievalEngine.Mode.parse(mode);
 
-        var qVec = embedder.embedOne(q.trim());
-        String pgVec = toPgVector(qVec);
-
-        return jdbc.queryForList(
-                "SELECT id, source_id, chunk_index, content, (embedding <=> ?::vector) AS distance " +
-                "FROM chunks " +
-                "WHERE item_id = ? AND embedding IS NOT NULL " +
-                "ORDER BY embedding <=> ?::vector " +
-                "LIMIT ?",
-                pgVec, itemId, pgVec, topK
-        );
+        return retrieval.search(searchMode, itemId, q.trim(), embedder.embedQuery(q), topK, efSearch(ef));
     }
 
-    private static String toPgVector(List<Double> v) {
-        StringBuilder sb = new StringBuilder();
-        sb.append('[');
-        for (int i = 0; i < v.size(); i++) {
-            if (i > 0) sb.append(',');
-            sb.append(v.get(i));
-        }
-        sb.append(']');
-        return sb.toString();
+    /**
+     * Per-request recall/latency knob (HNSW ef_search); null keeps the configured default.
+     */
+    static Integer efSearch(Integer ef) {
+        return ef == null ? null : Math.max(1, Math.min(ef, 1000));
     }
 }
@@ -0,0 +1,48 @@
+-- Tables that existed before migrations were managed here. IF NOT EXISTS throughout so the
+-- script is a no-op on databases created by hand (spring.flyway.baseline-on-migrate).
+
+CREATE EXTENSION IF NOT EXISTS vector;
+
+CREATE TABLE IF NOT EXISTS items (
+    id         BIGSERIAL PRIMARY KEY,
+    name       TEXT        NOT NULL,
+    category   TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS sources (
+    id           BIGSERIAL PRIMARY KEY,
+    item_id      BIGINT      NOT NULL REFERENCES items(id),
+    type         TEXT        NOT NULL,
+    uri          TEXT,
+    trust_level  TEXT,
+    content_hash TEXT,
+    created_at   TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS chunks (
+    id          BIGSERIAL PRIMARY KEY,
+    item_id     BIGINT      NOT NULL REFERENCES items(id),
+    source_id   BIGINT      NOT NULL REFERENCES sources(id),
+    chunk_index INT         NOT NULL,
+    content     TEXT        NOT NULL,
+    embedding   vector(${embedDims}),
+    created_at  TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS receipts (
+    id              BIGSERIAL PRIMARY KEY,
+    item_id         BIGINT      NOT NULL REFERENCES items(id),
+    created_at      TIMESTAMPTZ NOT NULL DEFAULT now(),
+    receipt_version INT         NOT NULL,
+    question        TEXT        NOT NULL,
+    recommendation  TEXT,
+    rationale       TEXT,
+    citations       JSONB       NOT NULL DEFAULT '[]'::jsonb,
+    assumptions     JSONB       NOT NULL DEFAULT '[]'::jsonb,
+    chat_model      TEXT,
+    embed_model     TEXT,
+    k_used          INT,
+    prompt_version  TEXT,
+    deleted_at      TIMESTAMPTZ
+);
@@ -0,0 +1,23 @@
+-- Background embedding jobs (see EmbeddingJobService).
+
+CREATE TABLE IF NOT EXISTS embedding_jobs (
+    id                BIGSERIAL PRIMARY KEY,
+    source_id         BIGINT      NOT NULL REFERENCES sources(id),
+    status            TEXT        NOT NULL DEFAULT 'queued',  -- queued | running | done | failed
+    total_chunks      INT         NOT NULL DEFAULT 0,
+    embedded_chunks   INT         NOT NULL DEFAULT 0,
+    embedded_at_start INT         NOT NULL DEFAULT 0,         -- embedded_chunks when the current run started (for ETA)
+    attempts          INT         NOT NULL DEFAULT 0,
+    error             TEXT,
+    created_at        TIMESTAMPTZ NOT NULL DEFAULT now(),
+    started_at        TIMESTAMPTZ,
+    updated_at        TIMESTAMPTZ NOT NULL DEFAULT now(),
+    finished_at       TIMESTAMPTZ
+);
+
+-- Workers claim the oldest queued job
+CREATE INDEX IF NOT EXISTS embedding_jobs_queued_idx ON embedding_jobs(id) WHERE status = 'queued';
+
+-- At most one active job per source; enqueueing again returns the active one
+CREATE UNIQUE INDEX IF NOT EXISTS embedding_jobs_active_source_idx
+    ON embedding_jobs(source_id) WHERE status IN ('queued', 'running');
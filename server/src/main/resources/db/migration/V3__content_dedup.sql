@@ -0,0 +1,15 @@
+-- Content-hash deduplication of sources and chunk embeddings.
+
+-- Source-level: find an earlier copy of the same document
+CREATE INDEX IF NOT EXISTS sources_content_hash_idx ON sources(content_hash);
+
+-- Chunk-level: sha256(chunk text) -> embedding, per embed model
+CREATE TABLE IF NOT EXISTS chunk_embeddings (
+    content_hash TEXT        NOT NULL,
+    embed_model  TEXT        NOT NULL,
+    embedding    vector      NOT NULL,
+    created_at   TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (content_hash, embed_model)
+);
+
+ALTER TABLE embedding_jobs ADD COLUMN IF NOT EXISTS reused_chunks INT NOT NULL DEFAULT 0;
@@ -0,0 +1,9 @@
+-- Vector retrieval (PgVectorRetrievalEngine): cosine distance, matching <=>.
+-- Query-time recall/latency: hnsw.ef_search (keepkind.retrieval.pgvector.efSearch or ?ef=).
+-- Built CONCURRENTLY, so chunks stays readable and writable (ingestion, embedding jobs) while
+-- the graph is built, which takes minutes on a large table. That cannot run in a transaction:
+-- see the .conf next to this file. If the build fails it leaves an INVALID index; drop it
+-- (DROP INDEX CONCURRENTLY chunks_embedding_hnsw_idx) and migrate again.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS chunks_embedding_hnsw_idx
+    ON chunks USING hnsw (embedding vector_cosine_ops)
+    WITH (m = ${hnswM}, ef_construction = ${hnswEfConstruction});
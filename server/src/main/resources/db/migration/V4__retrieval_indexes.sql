@@ -0,0 +1,43 @@
+-- Indexes for the hot read paths. Without them every retrieval is a sequential scan.
+
+-- ANN indexes need a fixed dimension; databases created by hand may have an untyped column.
+-- Typing it rewrites chunks under an ACCESS EXCLUSIVE lock: reads and writes of chunks wait for
+-- about one sequential rewrite of the table (plan downtime on a large one). So it only runs when
+-- the column is not vector(${embedDims}) yet, and stops with an explanation if any chunk was
+-- embedded with another dimension instead of failing half-way through the rewrite.
+DO $$
+DECLARE
+    current_type TEXT;
+    mismatched   BIGINT;
+BEGIN
+    SELECT format_type(a.atttypid, a.atttypmod) INTO current_type
+    FROM pg_attribute a
+    WHERE a.attrelid = 'chunks'::regclass AND a.attname = 'embedding';
+    IF current_type = 'vector(${embedDims})' THEN
+        RETURN;
+    END IF;
+
+    SELECT COUNT(*) INTO mismatched
+    FROM chunks
+    WHERE embedding IS NOT NULL AND vector_dims(embedding) <> ${embedDims};
+    IF mismatched > 0 THEN
+        RAISE EXCEPTION '% chunks have embeddings that are not % dimensions (embedded with another model?)',
+            mismatched, ${embedDims}
+            USING HINT = 'Set spring.flyway.placeholders.embedDims to the embed model''s dimension, or clear them '
+                || '(UPDATE chunks SET embedding = NULL WHERE vector_dims(embedding) <> ${embedDims}) '
+                || 'and queue embedding jobs for their sources after the migration.';
+    END IF;
+
+    ALTER TABLE chunks ALTER COLUMN embedding TYPE vector(${embedDims});
+END $$;
+
+-- The HNSW index on chunks.embedding is built concurrently in V4_1.
+
+-- Per-item / per-source chunk lookups (keyword search, HNSW engine fallback, embedding jobs, dedup copy)
+CREATE INDEX IF NOT EXISTS chunks_item_id_idx ON chunks(item_id);
+CREATE INDEX IF NOT EXISTS chunks_source_id_idx ON chunks(source_id, chunk_index);
+
+CREATE INDEX IF NOT EXISTS sources_item_id_idx ON sources(item_id);
+
+-- Receipt listing and latest: WHERE item_id = ? ORDER BY created_at DESC, id DESC
+CREATE INDEX IF NOT EXISTS receipts_item_created_idx ON receipts(item_id, created_at, id);
@@ -0,0 +1,7 @@
+-- Full-text search over chunks (ChunkSearchController, hybrid retrieval).
+-- 'english' stems words and keeps hyphenated codes (e.g. "XR-200") as whole tokens as well as parts.
+ALTER TABLE chunks
+    ADD COLUMN IF NOT EXISTS content_tsv tsvector
+    GENERATED ALWAYS AS (to_tsvector('english', content)) STORED;
+
+CREATE INDEX IF NOT EXISTS chunks_content_tsv_idx ON chunks USING gin (content_tsv);
@@ -0,0 +1,14 @@
+-- Per-item receipt version counter (ReceiptVersions). One row per item, bumped with
+-- INSERT ... ON CONFLICT ... RETURNING in the same transaction as the receipt insert: concurrent
+-- receipts for an item queue on the row lock instead of reading the same MAX(receipt_version).
+CREATE TABLE IF NOT EXISTS receipt_counters (
+    item_id      BIGINT PRIMARY KEY REFERENCES items(id),
+    last_version INT NOT NULL
+);
+
+-- Continue from existing receipts, deleted ones included, so a version is never handed out twice.
+INSERT INTO receipt_counters(item_id, last_version)
+SELECT item_id, MAX(receipt_version)
+FROM receipts
+GROUP BY item_id
+ON CONFLICT (item_id) DO NOTHING;
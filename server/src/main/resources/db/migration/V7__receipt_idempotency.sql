@@ -0,0 +1,10 @@
+-- Idempotency-Key on POST /items/{itemId}/receipt: a retry with the same key returns the receipt
+-- the key created. request_hash (question, k, mode, ef) detects a key reused for a different request.
+CREATE TABLE IF NOT EXISTS receipt_idempotency (
+    item_id         BIGINT      NOT NULL REFERENCES items(id),
+    idempotency_key TEXT        NOT NULL,
+    request_hash    TEXT        NOT NULL,
+    receipt_id      BIGINT      NOT NULL REFERENCES receipts(id),
+    created_at      TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (item_id, idempotency_key)
+);
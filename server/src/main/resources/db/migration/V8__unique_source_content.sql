@@ -0,0 +1,14 @@
+-- At most one source per item and content hash. Concurrent posts of the same document race on
+-- this index (INSERT ... ON CONFLICT DO NOTHING) instead of both passing a read-then-insert check.
+-- Duplicates left by earlier races keep their rows and chunks; only the oldest keeps its hash.
+UPDATE sources s
+SET content_hash = NULL
+WHERE s.content_hash IS NOT NULL
+  AND EXISTS (
+    SELECT 1 FROM sources o
+    WHERE o.item_id = s.item_id AND o.content_hash = s.content_hash AND o.id < s.id
+  );
+
+CREATE UNIQUE INDEX IF NOT EXISTS sources_item_content_hash_key
+    ON sources(item_id, content_hash)
+    WHERE content_hash IS NOT NULL;
@@ -0,0 +1,116 @@
+package com.keepkind;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void stop() {
+        pool.shutdownNow();
+    }
+
+    /** Takes the bulkhead's only permit on another thread until {@code release} counts down. */
+    private Future<String> hold(Bulkhead bulkhead, CountDownLatch release) throws InterruptedException {
+        CountDownLatch holding = new CountDownLatch(1);
+        Future<String> f = pool.submit(() -> bulkhead.call(() -> {
+            holding.countDown();
+            await(release);
+            return "held";
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        return f;
+    }
+
+    private static void waitFor(Bulkhead bulkhead, String stat, int value) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Integer.valueOf(value).equals(bulkhead.stats().get(stat)) && System.nanoTime() < deadline) Thread.sleep(5);
+        assertEquals(value, bulkhead.stats().get(stat));
+    }
+
+    @Test
+    void rejectsWith429WhenTheQueueIsFull() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 1, 5000);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> holder = hold(bulkhead, release);
+        Future<String> queued = pool.submit(() -> bulkhead.call(() -> "queued"));
+        waitFor(bulkhead, "waiting", 1);
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> bulkhead.call(() -> "rejected"));
+        assertEquals(429, e.getStatusCode().value());
+        assertEquals(1L, bulkhead.stats().get("rejectedQueueFull"));
+        assertEquals(0L, bulkhead.stats().get("rejectedTimeout"));
+
+        // the queued caller gets the permit once it is released
+        release.countDown();
+        assertEquals("held", holder.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+        assertEquals(2L, bulkhead.stats().get("calls"));
+        assertEquals(0, bulkhead.stats().get("active"));
+        assertEquals(0, bulkhead.stats().get("waiting"));
+    }
+
+    @Test
+    void withoutAQueueRejectsAtOnce() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 0, 5000);
+        CountDownLatch release = new CountDownLatch(1);
+        hold(bulkhead, release);
+
+        long started = System.nanoTime();
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> bulkhead.call(() -> "rejected"));
+        assertEquals(429, e.getStatusCode().value());
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1), "waited before rejecting");
+        assertEquals(1L, bulkhead.stats().get("rejectedQueueFull"));
+        release.countDown();
+    }
+
+    @Test
+    void rejectsWith503WhenTheWaitTimesOut() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 4, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        hold(bulkhead, release);
+
+        for (int i = 0; i < 3; i++) {
+            ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> bulkhead.call(() -> "late"));
+            assertEquals(503, e.getStatusCode().value());
+        }
+        assertEquals(3L, bulkhead.stats().get("rejectedTimeout"));
+        assertEquals(0L, bulkhead.stats().get("rejectedQueueFull"));
+        assertEquals(0, bulkhead.stats().get("waiting"));
+        assertEquals(1, bulkhead.stats().get("active"));
+        release.countDown();
+    }
+
+    @Test
+    void permitIsReleasedWhenTheWorkThrows() {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 0, 0);
+
+        assertThrows(IllegalStateException.class, () -> bulkhead.call(() -> {
+            throw new IllegalStateException("failed");
+        }));
+        assertEquals(0, bulkhead.stats().get("active"));
+        assertEquals("ok", bulkhead.call(() -> "ok"));
+        assertEquals(2L, bulkhead.stats().get("calls"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS), "latch not released");
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
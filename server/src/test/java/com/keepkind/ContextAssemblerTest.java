@@ -0,0 +1,113 @@
+package com.keepkind;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContextAssemblerTest {
+
+    private static final String FIRST = "The pump filter should be cleaned every month using warm water.";
+    // starts with the last 17 characters of FIRST, as the chunker's overlap would
+    private static final String SECOND = "using warm water. Replace the seal if it leaks.";
+
+    private static Map<String, Object> row(long id, long sourceId, int chunkIndex, String content) {
+        return Map.of("id", id, "source_id", sourceId, "chunk_index", chunkIndex, "content", content, "distance", 0.1);
+    }
+
+    private static List<Long> ids(List<Map<String, Object>> rows) {
+        List<Long> out = new ArrayList<>();
+        for (Map<String, Object> r : rows) out.add(((Number) r.get("id")).longValue());
+        return out;
+    }
+
+    @Test
+    void neighbouringChunksMergeAndOverlapAppearsOnce() {
+        ContextAssembler.Packed packed = new ContextAssembler(1000, 4).pack(List.of(
+                row(11, 1, 1, SECOND), row(10, 1, 0, FIRST)));
+
+        assertEquals(1, packed.spans().size());
+        ContextAssembler.Span span = packed.spans().get(0);
+        assertEquals(FIRST + " Replace the seal if it leaks.", span.text());
+        assertEquals(0, span.firstChunkIndex());
+        assertEquals(1, span.lastChunkIndex());
+        assertEquals(10L, span.parts().get(0).chunkId());
+        assertEquals(0, span.parts().get(0).start());
+        assertEquals(11L, span.parts().get(1).chunkId());
+        assertEquals(FIRST.length(), span.parts().get(1).start());
+        // used rows stay in retrieval order
+        assertEquals(List.of(11L, 10L), ids(packed.used()));
+        assertEquals(0, packed.dropped());
+    }
+
+    @Test
+    void shortCoincidentalMatchIsNotTreatedAsOverlap() {
+        ContextAssembler.Packed packed = new ContextAssembler(1000, 4).pack(List.of(
+                row(1, 1, 0, "Turn the dial to the end"), row(2, 1, 1, "end of the scale, then wait.")));
+
+        assertEquals("Turn the dial to the end end of the scale, then wait.", packed.spans().get(0).text());
+        assertEquals(25, packed.spans().get(0).parts().get(1).start());
+    }
+
+    @Test
+    void overlapNeedsAtLeastSixteenCharacters() {
+        assertEquals(0, ContextAssembler.overlap("xxxx" + "abcdefghijklmno", "abcdefghijklmno yyy"));
+        assertEquals(16, ContextAssembler.overlap("xxxx" + "abcdefghijklmnop", "abcdefghijklmnop yyy"));
+        assertEquals(0, ContextAssembler.overlap("", "abcdefghijklmnop"));
+    }
+
+    @Test
+    void gapsAndOtherSourcesStaySeparateSpansInRankOrder() {
+        ContextAssembler.Packed packed = new ContextAssembler(1000, 4).pack(List.of(
+                row(25, 2, 5, "Source two, chunk five."),
+                row(10, 1, 0, FIRST),
+                row(11, 1, 1, SECOND),
+                row(29, 2, 9, "Source two, chunk nine.")));
+
+        List<ContextAssembler.Span> spans = packed.spans();
+        assertEquals(3, spans.size());
+        assertEquals(2L, spans.get(0).sourceId());
+        assertEquals(5, spans.get(0).firstChunkIndex());
+        assertEquals(1L, spans.get(1).sourceId());
+        assertEquals(2, spans.get(1).parts().size());
+        assertEquals(2L, spans.get(2).sourceId());
+        assertEquals(9, spans.get(2).firstChunkIndex());
+        assertTrue(ContextAssembler.render(spans).startsWith("CHUNK 25 (source 2):\n"));
+        assertTrue(ContextAssembler.render(spans).contains("CHUNK 10, 11 (source 1):\n"));
+    }
+
+    @Test
+    void bestChunkIsKeptEvenWhenOverBudget() {
+        ContextAssembler assembler = new ContextAssembler(10, 4);
+        ContextAssembler.Packed packed = assembler.pack(List.of(
+                row(1, 1, 0, "x".repeat(200)), row(2, 2, 0, "short")));
+
+        assertEquals(List.of(1L), ids(packed.used()));
+        assertEquals(1, packed.dropped());
+        assertTrue(packed.tokens() > 10);
+        assertEquals(assembler.estimateTokens(ContextAssembler.render(packed.spans())), packed.tokens());
+    }
+
+    @Test
+    void chunkThatDoesNotFitIsSkippedButLaterOnesStillCount() {
+        // one char per token: "CHUNK n (source n):\n" is 20 chars, plus the text and "\n\n"
+        ContextAssembler.Packed packed = new ContextAssembler(120, 1).pack(List.of(
+                row(1, 1, 0, "a".repeat(50)), row(2, 2, 0, "b".repeat(200)), row(3, 3, 0, "c".repeat(10))));
+
+        assertEquals(List.of(1L, 3L), ids(packed.used()));
+        assertEquals(1, packed.dropped());
+        assertEquals(72 + 32, packed.tokens());
+    }
+
+    @Test
+    void emptyRetrievalPacksNothing() {
+        ContextAssembler.Packed packed = new ContextAssembler(100, 4).pack(List.of());
+        assertEquals(List.of(), packed.spans());
+        assertEquals(0, packed.tokens());
+        assertEquals(0, packed.dropped());
+    }
+}
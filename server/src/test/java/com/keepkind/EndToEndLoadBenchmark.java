@@ -0,0 +1,188 @@
+package com.keepkind;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput and p50/p99 per endpoint with the whole server running against {@link FakeOllama}
+ * (fixed, configurable model latency) and a real Postgres: text ingestion, embedding jobs, then
+ * /ask and /receipt together, each at its own target rate.
+ *
+ * <pre>
+ * docker compose -f infra/docker-compose.yml up -d
+ * ./mvnw test -Dtest=EndToEndLoadBenchmark -Dkeepkind.bench=true \
+ *     [-Dkeepkind.bench.rps=4] [-Dkeepkind.bench.seconds=30] [-Dkeepkind.bench.jdbcUrl=jdbc:postgresql://localhost:5432/keepkind] \
+ *     [-Dfake.embed=lognormal:25:0.3] [-Dfake.chat=lognormal:80:0.3] [-Dfake.token=fixed:20] [-Dfake.tokens=60] [-Dfake.chatParallel=1]
+ * </pre>
+ * Rates: keepkind.bench.ingestRps, embedRps, askRps, receiptRps (each defaults to keepkind.bench.rps).
+ */
+@EnabledIfSystemProperty(named = "keepkind.bench", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class EndToEndLoadBenchmark {
+
+    private static FakeOllama fake;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws Exception {
+        fake = new FakeOllama(FakeOllama.Options.fromSystemProperties());
+        registry.add("keepkind.ollama.baseUrl", fake::baseUrl);
+        registry.add("keepkind.jobs.pollMillis", () -> 200);
+        String url = System.getProperty("keepkind.bench.jdbcUrl");
+        if (url != null) registry.add("spring.datasource.url", () -> url);
+    }
+
+    @AfterAll
+    static void stopFake() {
+        if (fake != null) fake.close();
+    }
+
+    @Value("${local.server.port}")
+    int port;
+
+    @Autowired
+    ObjectMapper mapper;
+
+    @Test
+    void endpointsUnderLoad() throws Exception {
+        double rps = Double.parseDouble(System.getProperty("keepkind.bench.rps", "4"));
+        int seconds = Integer.getInteger("keepkind.bench.seconds", 30);
+        String base = "http://localhost:" + port;
+        List<LoadGenerator.Result> results = Collections.synchronizedList(new ArrayList<>());
+
+        try (LoadGenerator load = new LoadGenerator()) {
+            long itemId = json(load, LoadGenerator.request(base + "/items")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"Load test grinder\",\"category\":\"appliance\"}"))
+                    .build()).path("id").asLong();
+
+            // 1) ingestion: distinct ~6 KB text sources
+            List<Long> sourceIds = Collections.synchronizedList(new ArrayList<>());
+            double ingestRps = rate("ingestRps", rps);
+            results.add(load.run("POST sources/text", ingestRps, count(ingestRps, seconds), 120,
+                    n -> LoadGenerator.request(base + "/items/" + itemId + "/sources/text")
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(Map.of(
+                                    "title", "Manual " + n,
+                                    "text", manualText(n, 6000)))))
+                            .build(),
+                    (body, n) -> sourceIds.add(mapper.readTree(body).path("sourceId").asLong())));
+
+            // 2) embedding: queue one job per ingested source, then wait for the workers to drain them
+            List<Long> jobIds = Collections.synchronizedList(new ArrayList<>());
+            List<Long> toEmbed = new ArrayList<>(sourceIds);
+            long embedStart = System.nanoTime();
+            long embedInputsBefore = fake.embedInputs();
+            results.add(load.run("POST sources/embed", rate("embedRps", rps), toEmbed.size(), 120,
+                    n -> LoadGenerator.request(base + "/sources/" + toEmbed.get(n) + "/embed")
+                            .POST(HttpRequest.BodyPublishers.noBody())
+                            .build(),
+                    (body, n) -> jobIds.add(mapper.readTree(body).path("jobId").asLong())));
+            int unfinished = waitForJobs(load, base, jobIds, 600);
+            double embedSeconds = (System.nanoTime() - embedStart) / 1e9;
+            long embedded = fake.embedInputs() - embedInputsBefore;
+
+            // 3) /ask and /receipt together; a fixed pool of questions so the query cache sees repeats
+            String[] questions = new String[Integer.getInteger("keepkind.bench.questions", 50)];
+            for (int i = 0; i < questions.length; i++) {
+                questions[i] = "How often should I replace part " + (i * 7919 % 1000) + " of the XR-200?";
+            }
+            double receiptRps = rate("receiptRps", rps);
+            double askRps = rate("askRps", rps);
+            Thread receipts = new Thread(() -> results.add(load.run("POST receipt", receiptRps, count(receiptRps, seconds), 600,
+                    n -> LoadGenerator.request(base + "/items/" + itemId + "/receipt?k=5&q=" + encode(questions[n % questions.length]))
+                            .POST(HttpRequest.BodyPublishers.noBody())
+                            .build(),
+                    null)));
+            receipts.start();
+            results.add(load.run("GET ask", askRps, count(askRps, seconds), 600,
+                    n -> LoadGenerator.request(base + "/items/" + itemId + "/ask?k=5&q=" + encode(questions[(n + 17) % questions.length]))
+                            .GET()
+                            .build(),
+                    null));
+            receipts.join();
+
+            System.out.println();
+            System.out.println(LoadGenerator.Result.header());
+            for (LoadGenerator.Result r : results) System.out.println(r.row());
+            System.out.printf("%nembedding jobs: %d queued, %d unfinished, %d chunks embedded in %.1f s (%.1f chunks/s)%n",
+                    jobIds.size(), unfinished, embedded, embedSeconds, embedded / embedSeconds);
+            System.out.printf("fake ollama: %d embed calls (%d inputs), %d chat calls%n",
+                    fake.embedCalls(), fake.embedInputs(), fake.chatCalls());
+
+            assertTrue(results.stream().allMatch(r -> r.ok() > 0), "an endpoint had no successful requests");
+        }
+    }
+
+    private static int count(double rps, int seconds) {
+        return Math.max(1, (int) Math.round(rps * seconds));
+    }
+
+    private static double rate(String name, double fallback) {
+        String v = System.getProperty("keepkind.bench." + name);
+        return v == null ? fallback : Double.parseDouble(v);
+    }
+
+    /** Polls the jobs until all are done or failed; returns how many were still open at the deadline. */
+    private int waitForJobs(LoadGenerator load, String base, List<Long> jobIds, int timeoutSeconds) throws Exception {
+        long deadline = System.nanoTime() + timeoutSeconds * 1_000_000_000L;
+        List<Long> open = new ArrayList<>(jobIds);
+        while (!open.isEmpty() && System.nanoTime() < deadline) {
+            open.removeIf(id -> {
+                String status = json(load, LoadGenerator.request(base + "/jobs/" + id).GET().build()).path("status").asString();
+                return "done".equals(status) || "failed".equals(status);
+            });
+            if (!open.isEmpty()) Thread.sleep(250);
+        }
+        return open.size();
+    }
+
+    private JsonNode json(LoadGenerator load, HttpRequest request) {
+        try {
+            HttpResponse<String> resp = load.http().send(request, HttpResponse.BodyHandlers.ofString());
+            if (resp.statusCode() / 100 != 2) throw new IllegalStateException(request.uri() + " returned " + resp.statusCode());
+            return mapper.readTree(resp.body());
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+
+    /** Distinct manual-like text per source number (distinct, so content dedup does not kick in). */
+    private static String manualText(int n, int chars) {
+        String[] words = {"replace", "the", "filter", "every", "months", "check", "gasket", "torque", "model",
+                "XR-200", "warranty", "service", "interval", "clean", "burrs", "motor", "housing"};
+        java.util.Random rnd = new java.util.Random(n);
+        StringBuilder sb = new StringBuilder(chars + 64).append("Manual ").append(n).append(". ");
+        while (sb.length() < chars) {
+            int len = 6 + rnd.nextInt(14);
+            for (int i = 0; i < len; i++) sb.append(i == 0 ? "" : " ").append(words[rnd.nextInt(words.length)]);
+            sb.append(rnd.nextInt(6) == 0 ? ".\n\n" : ". ");
+        }
+        return sb.toString();
+    }
+}
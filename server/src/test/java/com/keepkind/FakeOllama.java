@@ -0,0 +1,320 @@
+package com.keepkind;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for the parts of Ollama that KeepKind calls ({@code /api/embed} and {@code /api/chat},
+ * streaming or not), with controlled latency instead of a model, for load tests that have to be
+ * comparable run to run.
+ * <ul>
+ *   <li>Embeddings are deterministic: the same text always gets the same unit vector.</li>
+ *   <li>Chat answers follow the receipt format (RECOMMENDATION/RATIONALE/ASSUMPTIONS) and are
+ *       streamed word by word; prefill time grows with the prompt length, like a real model.</li>
+ *   <li>{@code chatParallel} limits concurrent generations the way OLLAMA_NUM_PARALLEL does;
+ *       excess requests queue.</li>
+ * </ul>
+ * Standalone (then point keepkind.ollama.baseUrl at it):
+ * <pre>
+ * ./mvnw -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:$(cat target/cp.txt) -Dfake.port=11435 \
+ *     -Dfake.embed=lognormal:25:0.3 -Dfake.prefillPerToken=1 -Dfake.token=fixed:20 com.keepkind.FakeOllama
+ * </pre>
+ */
+public final class FakeOllama implements AutoCloseable {
+
+    /**
+     * A latency distribution in milliseconds: {@code fixed:MS}, {@code uniform:MIN:MAX} or
+     * {@code lognormal:MEDIAN:SIGMA} (long right tail, like real model latencies).
+     */
+    public record Latency(String kind, double a, double b) {
+
+        public static Latency parse(String spec) {
+            String[] p = spec.split(":");
+            try {
+                return switch (p[0]) {
+                    case "fixed" -> new Latency("fixed", Double.parseDouble(p[1]), 0);
+                    case "uniform", "lognormal" -> new Latency(p[0], Double.parseDouble(p[1]), Double.parseDouble(p[2]));
+                    default -> throw new IllegalArgumentException();
+                };
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("latency must be fixed:MS, uniform:MIN:MAX or lognormal:MEDIAN:SIGMA, got " + spec);
+            }
+        }
+
+        public double sampleMs() {
+            ThreadLocalRandom r = ThreadLocalRandom.current();
+            return switch (kind) {
+                case "fixed" -> a;
+                case "uniform" -> a + r.nextDouble() * (b - a);
+                default -> a * Math.exp(b * r.nextGaussian());
+            };
+        }
+    }
+
+    /**
+     * @param embedLatency     per /api/embed call
+     * @param embedPerInputMs  added per input text in a batch
+     * @param chatLatency      fixed part of prefill (model already loaded)
+     * @param prefillPerToken  ms per prompt token (prompt tokens ~ chars / 4)
+     * @param tokenLatency     per generated token
+     * @param answerTokens     generated tokens per answer
+     * @param chatParallel     concurrent generations; the rest wait
+     */
+    public record Options(
+            int port,
+            int dims,
+            Latency embedLatency,
+            double embedPerInputMs,
+            Latency chatLatency,
+            double prefillPerToken,
+            Latency tokenLatency,
+            int answerTokens,
+            int chatParallel
+    ) {
+        public static Options fromSystemProperties() {
+            return new Options(
+                    Integer.getInteger("fake.port", 0),
+                    Integer.getInteger("fake.dims", 768),
+                    Latency.parse(System.getProperty("fake.embed", "lognormal:25:0.3")),
+                    Double.parseDouble(System.getProperty("fake.embedPerInput", "2")),
+                    Latency.parse(System.getProperty("fake.chat", "lognormal:80:0.3")),
+                    Double.parseDouble(System.getProperty("fake.prefillPerToken", "1")),
+                    Latency.parse(System.getProperty("fake.token", "fixed:20")),
+                    Integer.getInteger("fake.tokens", 60),
+                    Integer.getInteger("fake.chatParallel", 1)
+            );
+        }
+    }
+
+    private static final String[] WORDS = {
+            "the", "burrs", "are", "worn", "and", "should", "be", "replaced", "according", "to", "the",
+            "care", "note", "which", "recommends", "every", "six", "to", "twelve", "months", "of", "use"
+    };
+
+    private final Options options;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Semaphore generating;
+    private final JsonMapper mapper = JsonMapper.builder().build();
+
+    private final AtomicLong embedCalls = new AtomicLong();
+    private final AtomicLong embedInputs = new AtomicLong();
+    private final AtomicLong chatCalls = new AtomicLong();
+
+    public FakeOllama(Options options) throws IOException {
+        this.options = options;
+        this.generating = new Semaphore(Math.max(1, options.chatParallel()), true);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", options.port()), 512);
+        server.createContext("/api/embed", this::embed);
+        server.createContext("/api/chat", this::chat);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long embedCalls() {
+        return embedCalls.get();
+    }
+
+    public long embedInputs() {
+        return embedInputs.get();
+    }
+
+    /** Generations currently running (they stop when the client disconnects mid-stream). */
+    public int chatsGenerating() {
+        return Math.max(1, options.chatParallel()) - generating.availablePermits();
+    }
+
+    public long chatCalls() {
+        return chatCalls.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /** Deterministic unit vector for a text: same text, same vector, across runs and processes. */
+    public static float[] vectorFor(String text, int dims) {
+        // FNV-1a, so the seed does not depend on String.hashCode's 32 bits alone
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        Random rnd = new Random(h);
+        float[] v = new float[dims];
+        double norm = 0;
+        for (int i = 0; i < dims; i++) {
+            v[i] = (float) rnd.nextGaussian();
+            norm += v[i] * v[i];
+        }
+        float inv = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dims; i++) v[i] *= inv;
+        return v;
+    }
+
+    // HttpExchange is only AutoCloseable from Java 18 on
+    private void embed(HttpExchange ex) throws IOException {
+        try {
+            JsonNode req = mapper.readTree(ex.getRequestBody());
+            List<String> inputs = new ArrayList<>();
+            JsonNode input = req.path("input");
+            if (input.isArray()) input.forEach(n -> inputs.add(n.asString()));
+            else inputs.add(input.asString());
+            embedCalls.incrementAndGet();
+            embedInputs.addAndGet(inputs.size());
+
+            double ms = options.embedLatency().sampleMs() + options.embedPerInputMs() * inputs.size();
+            sleep(ms);
+
+            ObjectNode resp = mapper.createObjectNode();
+            resp.put("model", req.path("model").asString());
+            ArrayNode embeddings = resp.putArray("embeddings");
+            long promptTokens = 0;
+            for (String text : inputs) {
+                ArrayNode row = embeddings.addArray();
+                for (float f : vectorFor(text, options.dims())) row.add(f);
+                promptTokens += tokens(text);
+            }
+            resp.put("total_duration", (long) (ms * 1e6));
+            resp.put("load_duration", 0);
+            resp.put("prompt_eval_count", promptTokens);
+            send(ex, 200, "application/json", mapper.writeValueAsBytes(resp));
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void chat(HttpExchange ex) throws IOException {
+        try {
+            JsonNode req = mapper.readTree(ex.getRequestBody());
+            String model = req.path("model").asString();
+            boolean stream = req.path("stream").asBoolean(true);
+            long promptTokens = 0;
+            for (JsonNode m : req.path("messages")) promptTokens += tokens(m.path("content").asString());
+            chatCalls.incrementAndGet();
+
+            generating.acquireUninterruptibly();
+            try {
+                long started = System.nanoTime();
+                sleep(options.chatLatency().sampleMs() + options.prefillPerToken() * promptTokens);
+                long prefillNs = System.nanoTime() - started;
+
+                List<String> pieces = answer(options.answerTokens());
+                if (!stream) {
+                    long evalStart = System.nanoTime();
+                    for (int i = 0; i < pieces.size(); i++) sleep(options.tokenLatency().sampleMs());
+                    ObjectNode done = message(model, String.join("", pieces), true);
+                    timings(done, started, prefillNs, promptTokens, pieces.size(), System.nanoTime() - evalStart);
+                    send(ex, 200, "application/json", mapper.writeValueAsBytes(done));
+                    return;
+                }
+
+                ex.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+                ex.sendResponseHeaders(200, 0);
+                OutputStream out = ex.getResponseBody();
+                long evalStart = System.nanoTime();
+                for (String piece : pieces) {
+                    sleep(options.tokenLatency().sampleMs());
+                    out.write(mapper.writeValueAsBytes(message(model, piece, false)));
+                    out.write('\n');
+                    out.flush();
+                }
+                ObjectNode done = message(model, "", true);
+                timings(done, started, prefillNs, promptTokens, pieces.size(), System.nanoTime() - evalStart);
+                out.write(mapper.writeValueAsBytes(done));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                // client went away mid-stream
+            } finally {
+                generating.release();
+            }
+        } finally {
+            ex.close();
+        }
+    }
+
+    private ObjectNode message(String model, String content, boolean done) {
+        ObjectNode n = mapper.createObjectNode();
+        n.put("model", model);
+        n.put("created_at", Instant.now().toString());
+        ObjectNode msg = n.putObject("message");
+        msg.put("role", "assistant");
+        msg.put("content", content);
+        n.put("done", done);
+        if (done) n.put("done_reason", "stop");
+        return n;
+    }
+
+    private static void timings(ObjectNode n, long startedNs, long prefillNs, long promptTokens, int evalCount, long evalNs) {
+        n.put("total_duration", System.nanoTime() - startedNs);
+        n.put("load_duration", 0);
+        n.put("prompt_eval_count", promptTokens);
+        n.put("prompt_eval_duration", prefillNs);
+        n.put("eval_count", evalCount);
+        n.put("eval_duration", evalNs);
+    }
+
+    /** A receipt-shaped answer split into ~{@code tokens} pieces (the first words carry the format lines). */
+    private static List<String> answer(int tokens) {
+        List<String> out = new ArrayList<>(tokens);
+        out.add("RECOMMENDATION:");
+        out.add(" repair\n");
+        out.add("RATIONALE:");
+        for (int i = 0; out.size() < Math.max(6, tokens - 3); i++) out.add(" " + WORDS[i % WORDS.length]);
+        out.add(".\n");
+        out.add("ASSUMPTIONS:");
+        out.add(" none");
+        return out;
+    }
+
+    private static long tokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    private static void sleep(double ms) {
+        if (ms <= 0) return;
+        try {
+            Thread.sleep((long) ms, (int) ((ms - Math.floor(ms)) * 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void send(HttpExchange ex, int status, String contentType, byte[] body) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", contentType);
+        ex.sendResponseHeaders(status, body.length);
+        ex.getResponseBody().write(body);
+    }
+
+    public static void main(String[] args) throws Exception {
+        FakeOllama fake = new FakeOllama(Options.fromSystemProperties());
+        System.out.println("Fake Ollama listening on " + fake.baseUrl());
+        Runtime.getRuntime().addShutdownHook(new Thread(fake::close));
+        Thread.currentThread().join();
+    }
+}
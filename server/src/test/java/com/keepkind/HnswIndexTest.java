@@ -0,0 +1,157 @@
+package com.keepkind;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Seeded graph and data, so recall is the same on every run. {@link HnswRecallBenchmark} measures
+ * recall and latency at realistic size against pgvector.
+ */
+class HnswIndexTest {
+
+    private static final int DIMS = 32;
+    private static final int COUNT = 2000;
+    private static final int QUERIES = 100;
+    private static final int K = 10;
+    private static final int EF = 64;
+
+    @Test
+    void recallAgainstBruteForce() {
+        Random rnd = new Random(1);
+        float[][] data = vectors(rnd, COUNT);
+        HnswIndex index = new HnswIndex(16, 100, 1);
+        for (int i = 0; i < COUNT; i++) index.add(i, data[i]);
+        assertEquals(COUNT, index.size());
+
+        double recall = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = vectors(rnd, 1)[0];
+            List<HnswIndex.Hit> hits = index.search(query, K, EF);
+            assertEquals(K, hits.size());
+            for (int i = 1; i < hits.size(); i++) {
+                assertTrue(hits.get(i - 1).distance() <= hits.get(i).distance(), "hits not nearest first");
+            }
+            recall += recall(bruteForce(data, null, query), hits);
+        }
+        recall /= QUERIES;
+        assertTrue(recall >= 0.95, "recall@" + K + " too low: " + recall);
+    }
+
+    @Test
+    void distanceIsCosineDistance() {
+        HnswIndex index = new HnswIndex(16, 100, 1);
+        index.add(1, new float[]{1, 0});
+        index.add(2, new float[]{0, 5});
+        index.add(3, new float[]{-2, 0});
+
+        List<HnswIndex.Hit> hits = index.search(new float[]{3, 0}, 3, EF);
+        assertEquals(List.of(1L, 2L, 3L), hits.stream().map(HnswIndex.Hit::id).toList());
+        assertEquals(0.0, hits.get(0).distance(), 1e-6);
+        assertEquals(1.0, hits.get(1).distance(), 1e-6);
+        assertEquals(2.0, hits.get(2).distance(), 1e-6);
+    }
+
+    @Test
+    void reinsertingAnIdReplacesIt() {
+        HnswIndex index = new HnswIndex(16, 100, 1);
+        index.add(1, new float[]{1, 0, 0});
+        index.add(2, new float[]{0, 1, 0});
+        index.add(1, new float[]{0, 0, 1});
+        assertEquals(2, index.size());
+        assertEquals(1, index.tombstones());
+
+        List<HnswIndex.Hit> hits = index.search(new float[]{1, 0, 0}, 5, EF);
+        assertEquals(2, hits.size());
+        // only the new vector of id 1 is found, at right angles to the query
+        assertEquals(1.0, hits.stream().filter(h -> h.id() == 1).findFirst().orElseThrow().distance(), 1e-6);
+        assertEquals(0.0, index.search(new float[]{0, 0, 1}, 1, EF).get(0).distance(), 1e-6);
+    }
+
+    @Test
+    void removedIdsAreNotReturnedAndDoNotCostResultSlots() {
+        Random rnd = new Random(2);
+        float[][] data = vectors(rnd, COUNT);
+        HnswIndex index = new HnswIndex(16, 100, 2);
+        for (int i = 0; i < COUNT; i++) index.add(i, data[i]);
+
+        // keep every tenth: most of what a search walks through is removed
+        Set<Long> removed = new HashSet<>();
+        for (long id = 0; id < COUNT; id++) {
+            if (id % 10 == 0) continue;
+            assertTrue(index.remove(id));
+            removed.add(id);
+        }
+        assertFalse(index.remove(1));
+        assertEquals(COUNT - removed.size(), index.size());
+        assertEquals(removed.size(), index.tombstones());
+
+        double recall = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = vectors(rnd, 1)[0];
+            // ef = k: removed nodes must not take any of the k candidate slots
+            List<HnswIndex.Hit> hits = index.search(query, K, K);
+            assertEquals(K, hits.size());
+            for (HnswIndex.Hit h : hits) assertFalse(removed.contains(h.id()), "removed id " + h.id() + " returned");
+            recall += recall(bruteForce(data, removed, query), hits);
+        }
+        recall /= QUERIES;
+        assertTrue(recall >= 0.95, "recall@" + K + " after removals too low: " + recall);
+    }
+
+    @Test
+    void emptyIndexReturnsNoHits() {
+        HnswIndex index = new HnswIndex(16, 100, 1);
+        assertEquals(List.of(), index.search(new float[]{1, 2, 3}, K, EF));
+
+        index.add(1, new float[]{1, 2, 3});
+        index.remove(1);
+        assertEquals(0, index.size());
+        assertEquals(List.of(), index.search(new float[]{1, 2, 3}, K, EF));
+    }
+
+    private static float[][] vectors(Random rnd, int count) {
+        float[][] out = new float[count][DIMS];
+        for (float[] v : out) {
+            for (int d = 0; d < DIMS; d++) v[d] = (float) rnd.nextGaussian();
+        }
+        return out;
+    }
+
+    /** Ids of the K nearest vectors by cosine distance, skipping {@code removed}. */
+    private static List<Long> bruteForce(float[][] data, Set<Long> removed, float[] query) {
+        double[] dist = new double[data.length];
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < data.length; i++) {
+            if (removed != null && removed.contains((long) i)) continue;
+            dist[i] = cosineDistance(data[i], query);
+            ids.add((long) i);
+        }
+        ids.sort(Comparator.comparingDouble(id -> dist[(int) (long) id]));
+        return ids.subList(0, K);
+    }
+
+    private static double recall(List<Long> truth, List<HnswIndex.Hit> hits) {
+        Set<Long> expected = new HashSet<>(truth);
+        return hits.stream().filter(h -> expected.contains(h.id())).count() / (double) K;
+    }
+
+    private static double cosineDistance(float[] a, float[] b) {
+        double dot = 0, na = 0, nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return 1 - dot / Math.sqrt(na * nb);
+    }
+}
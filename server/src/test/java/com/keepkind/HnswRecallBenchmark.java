@@ -0,0 +1,164 @@
+package com.keepkind;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recall@k and latency of the in-process HNSW engine against exact search, and (when a
+ * database is given) against pgvector on the same vectors.
+ *
+ * <pre>
+ * ./mvnw test -Dtest=HnswRecallBenchmark -Dkeepkind.bench=true \
+ *     [-Dkeepkind.bench.n=20000] [-Dkeepkind.bench.jdbcUrl=jdbc:postgresql://localhost:5432/keepkind]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "keepkind.bench", matches = "true")
+class HnswRecallBenchmark {
+
+    private static final int DIMS = 768;
+    private static final int K = 5;
+    private static final int QUERIES = 500;
+    private static final int EF_SEARCH = 64;
+
+    @Test
+    void recallAndLatency() throws Exception {
+        int n = Integer.getInteger("keepkind.bench.n", 20_000);
+        Random rnd = new Random(42);
+        float[][] centres = gaussian(rnd, 64, 1f);
+        float[][] data = around(rnd, centres, n);
+        float[][] queries = around(rnd, centres, QUERIES);
+
+        HnswIndex index = new HnswIndex(16, 100);
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < n; i++) index.add(i, data[i]);
+        System.out.printf("HNSW build: %d vectors in %d ms%n", n, (System.nanoTime() - buildStart) / 1_000_000);
+
+        long[] hnswNs = new long[QUERIES];
+        double recall = 0;
+        long[][] truth = new long[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            truth[q] = exactTopK(data, queries[q]);
+            long t0 = System.nanoTime();
+            var hits = index.search(queries[q], K, EF_SEARCH);
+            hnswNs[q] = System.nanoTime() - t0;
+            recall += overlap(truth[q], hits.stream().mapToLong(HnswIndex.Hit::id).toArray());
+        }
+        recall /= QUERIES;
+        report("hnsw (in-process)", recall, hnswNs);
+
+        String url = System.getProperty("keepkind.bench.jdbcUrl");
+        if (url != null) pgvector(url, data, queries, truth);
+
+        assertTrue(recall >= 0.9, "recall@" + K + " too low: " + recall);
+    }
+
+    /**
+     * Loads the same vectors into a temp table and times ORDER BY embedding <=> q LIMIT k
+     * (exact unless the table has an ANN index; the temp table here has none).
+     */
+    private static void pgvector(String url, float[][] data, float[][] queries, long[][] truth) throws Exception {
+        try (Connection con = DriverManager.getConnection(url,
+                System.getProperty("keepkind.bench.user", "keepkind"),
+                System.getProperty("keepkind.bench.password", "keepkind"))) {
+            try (Statement st = con.createStatement()) {
+                st.execute("CREATE TEMP TABLE bench_chunks(id BIGINT PRIMARY KEY, embedding vector(" + DIMS + "))");
+            }
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement("INSERT INTO bench_chunks VALUES (?, ?::vector)")) {
+                for (int i = 0; i < data.length; i++) {
+                    ps.setLong(1, i);
+                    ps.setObject(2, data[i]);
+                    ps.addBatch();
+                    if (i % 1000 == 999) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+            con.commit();
+            con.setAutoCommit(true);
+
+            long[] ns = new long[queries.length];
+            double recall = 0;
+            try (PreparedStatement ps = con.prepareStatement(
+                    "SELECT id FROM bench_chunks ORDER BY embedding <=> ?::vector LIMIT " + K)) {
+                for (int q = 0; q < queries.length; q++) {
+                    ps.setObject(1, queries[q]);
+                    long t0 = System.nanoTime();
+                    long[] ids = new long[K];
+                    int c = 0;
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) ids[c++] = rs.getLong(1);
+                    }
+                    ns[q] = System.nanoTime() - t0;
+                    recall += overlap(truth[q], Arrays.copyOf(ids, c));
+                }
+            }
+            report("pgvector (SQL round trip)", recall / queries.length, ns);
+        }
+    }
+
+    private static void report(String name, double recall, long[] ns) {
+        long[] sorted = ns.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-28s recall@%d=%.3f p50=%.2f ms p99=%.2f ms%n", name, K, recall,
+                sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6);
+    }
+
+    private static long[] exactTopK(float[][] data, float[] q) {
+        Integer[] order = new Integer[data.length];
+        double[] dist = new double[data.length];
+        for (int i = 0; i < data.length; i++) {
+            order[i] = i;
+            dist[i] = cosineDistance(data[i], q);
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(dist[a], dist[b]));
+        long[] out = new long[K];
+        for (int i = 0; i < K; i++) out[i] = order[i];
+        return out;
+    }
+
+    private static double overlap(long[] truth, long[] got) {
+        Set<Long> t = new HashSet<>();
+        for (long id : truth) t.add(id);
+        int hit = 0;
+        for (long id : got) if (t.contains(id)) hit++;
+        return (double) hit / truth.length;
+    }
+
+    private static double cosineDistance(float[] a, float[] b) {
+        double dot = 0, na = 0, nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return 1 - dot / Math.sqrt(na * nb);
+    }
+
+    private static float[][] gaussian(Random rnd, int count, float sigma) {
+        float[][] out = new float[count][DIMS];
+        for (float[] v : out) for (int i = 0; i < DIMS; i++) v[i] = (float) rnd.nextGaussian() * sigma;
+        return out;
+    }
+
+    /** Clustered vectors, closer to real embeddings than uniform noise. */
+    private static float[][] around(Random rnd, float[][] centres, int count) {
+        float[][] out = new float[count][DIMS];
+        for (float[] v : out) {
+            float[] c = centres[rnd.nextInt(centres.length)];
+            for (int i = 0; i < DIMS; i++) v[i] = c[i] + (float) rnd.nextGaussian() * 0.8f;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,120 @@
+package com.keepkind;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Open-loop load at a fixed request rate: request i is due at start + i / rps whether or not
+ * earlier ones have returned, and its latency is measured from when it was due. A slow server
+ * therefore shows up as latency rather than as a quietly lower request rate.
+ */
+final class LoadGenerator implements AutoCloseable {
+
+    /** Per-endpoint outcome; latencies (nanoseconds) of the successful requests. */
+    record Result(String name, double targetRps, int sent, int ok, Map<Integer, Integer> statuses,
+                  double seconds, long[] latencies) {
+
+        double throughput() {
+            return seconds == 0 ? 0 : ok / seconds;
+        }
+
+        double percentileMs(double p) {
+            if (latencies.length == 0) return 0;
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            int i = (int) Math.ceil(p / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(i, sorted.length - 1))] / 1e6;
+        }
+
+        String row() {
+            return String.format("%-22s %7.1f %6d %6d %9.1f %9.1f %9.1f %9.1f %9.1f  %s",
+                    name, targetRps, sent, ok, throughput(),
+                    percentileMs(50), percentileMs(90), percentileMs(99), percentileMs(100), statuses);
+        }
+
+        static String header() {
+            return String.format("%-22s %7s %6s %6s %9s %9s %9s %9s %9s  %s",
+                    "endpoint", "rps", "sent", "ok", "ok/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "statuses");
+        }
+    }
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpClient http = HttpClient.newBuilder()
+            .executor(executor)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    HttpClient http() {
+        return http;
+    }
+
+    /**
+     * Sends {@code total} requests built by {@code request} (called with the request number) at
+     * {@code rps} and waits up to {@code drainSeconds} for stragglers. Each 2xx response body is
+     * handed to {@code onOk} (may be null).
+     */
+    Result run(String name, double rps, int total, int drainSeconds,
+               IntFunction<HttpRequest> request, ObjIntConsumer<String> onOk) {
+        long periodNs = (long) (1e9 / rps);
+        long[] latencies = new long[total];
+        int[] status = new int[total];
+        List<CompletableFuture<?>> inFlight = new ArrayList<>(total);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long due = start + i * periodNs;
+            long wait = due - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            int n = i;
+            inFlight.add(http.sendAsync(request.apply(n), HttpResponse.BodyHandlers.ofString())
+                    .handle((resp, err) -> {
+                        latencies[n] = System.nanoTime() - due;
+                        status[n] = err != null ? -1 : resp.statusCode();
+                        if (err == null && resp.statusCode() / 100 == 2 && onOk != null) onOk.accept(resp.body(), n);
+                        return null;
+                    }));
+        }
+        try {
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).get(drainSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            // unfinished requests are reported with status 0
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        Map<Integer, Integer> statuses = new TreeMap<>();
+        List<Long> done = new ArrayList<>(total);
+        int ok = 0;
+        for (int i = 0; i < total; i++) {
+            statuses.merge(status[i], 1, Integer::sum);
+            if (status[i] / 100 == 2) {
+                ok++;
+                done.add(latencies[i]);
+            }
+        }
+        return new Result(name, rps, total, ok, statuses, elapsed, done.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    static HttpRequest.Builder request(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofMinutes(5));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
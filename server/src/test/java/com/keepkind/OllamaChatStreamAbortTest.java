@@ -0,0 +1,73 @@
+package com.keepkind;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A streamed chat whose client goes away must give back its bulkhead permit and pooled connection
+ * right away, and stop the generation, rather than read the rest of the answer first.
+ */
+class OllamaChatStreamAbortTest {
+
+    private FakeOllama fake;
+    private OllamaHttp transport;
+    private OllamaChatClient chat;
+
+    /** A fake answering with {@code tokens} tokens, one per {@code tokenLatency}; chat bulkhead of one. */
+    private void start(String tokenLatency, int tokens) throws IOException {
+        FakeOllama.Latency none = FakeOllama.Latency.parse("fixed:0");
+        fake = new FakeOllama(new FakeOllama.Options(0, 8, none, 0, none, 0,
+                FakeOllama.Latency.parse(tokenLatency), tokens, 1));
+        transport = new OllamaHttp(4, 2000, 5000, 30000, 180000, 1, 200, 2000);
+        chat = new OllamaChatClient(fake.baseUrl(), "test-model", "30m", transport,
+                JsonMapper.builder().build(), 1, 0, 100);
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        if (transport != null) transport.destroy();
+        if (fake != null) fake.close();
+    }
+
+    @Test
+    void disconnectReleasesPermitAndStopsGeneration() throws Exception {
+        start("fixed:50", 400); // a full answer takes 20 s
+        AtomicInteger tokens = new AtomicInteger();
+        long started = System.nanoTime();
+        assertThrows(UncheckedIOException.class, () -> chat.chatStream("system", "question", token -> {
+            if (tokens.incrementAndGet() == 3) throw new UncheckedIOException(new IOException("client went away"));
+        }));
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertTrue(elapsedMs < 2000, "returned after " + elapsedMs + " ms, i.e. waited for the generation");
+        assertEquals(0, chat.bulkhead().stats().get("active"));
+        assertEquals(0, transport.poolStats().get("leased"));
+
+        // the fake notices the dropped connection on its next write
+        long deadline = System.nanoTime() + 3_000_000_000L;
+        while (fake.chatsGenerating() > 0 && System.nanoTime() < deadline) Thread.sleep(20);
+        assertEquals(0, fake.chatsGenerating());
+    }
+
+    @Test
+    void completedStreamReturnsStatsAndFreesConnection() throws IOException {
+        start("fixed:0", 20);
+
+        StringBuilder answer = new StringBuilder();
+        OllamaChatClient.ChatStats stats = chat.chatStream("system", "question", answer::append);
+
+        assertTrue(answer.length() > 0);
+        assertEquals(20, stats.evalCount());
+        assertEquals(0, chat.bulkhead().stats().get("active"));
+        assertEquals(0, transport.poolStats().get("leased"));
+    }
+}
@@ -0,0 +1,67 @@
+package com.keepkind;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReceiptCursorTest {
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void roundTripKeepsMicroseconds() {
+        ReceiptCursor cursor = new ReceiptCursor(Instant.parse("2026-03-01T12:34:56.123456Z"), 42);
+        String token = cursor.encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), "not URL-safe: " + token);
+        assertEquals(cursor, ReceiptCursor.decode(token));
+        assertEquals(ZoneOffset.UTC, ReceiptCursor.decode(token).createdAtParam().getOffset());
+    }
+
+    @Test
+    void roundTripBeforeEpoch() {
+        ReceiptCursor cursor = new ReceiptCursor(Instant.parse("1969-12-31T23:59:59.999999Z"), 1);
+        assertEquals(cursor, ReceiptCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void afterTruncatesToTimestamptzPrecision() {
+        Timestamp ts = Timestamp.from(Instant.parse("2026-03-01T12:34:56.123456789Z"));
+        ReceiptCursor cursor = ReceiptCursor.decode(ReceiptCursor.after(ts, 7).encode());
+        assertEquals(Instant.parse("2026-03-01T12:34:56.123456Z"), cursor.createdAt());
+        assertEquals(7, cursor.id());
+    }
+
+    @Test
+    void rejectsMalformedAndTamperedTokens() {
+        String valid = new ReceiptCursor(Instant.parse("2026-03-01T12:34:56.123456Z"), 42).encode();
+        String micros = "1772368496123456";
+        for (String bad : new String[]{
+                "",
+                "not a cursor!",
+                valid + "=",                           // padding
+                "cjE+/w",                              // standard Base64 alphabet, not URL-safe
+                token("r2:" + micros + ":42"),        // unknown version
+                token("r1:" + micros),                 // missing id
+                token("r1:" + micros + ":42:1"),       // extra field
+                token("r1:" + micros + ":x"),
+                token("r1:0" + micros + ":42"),        // leading zero
+                token("r1:+" + micros + ":42"),
+                token("r1:" + Long.MAX_VALUE + ":42"), // beyond Instant's range
+        }) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> ReceiptCursor.decode(bad), "accepted " + bad);
+            assertEquals("invalid cursor", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.keepkind;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Many threads creating receipts for the same items at once, the way ReceiptController persists
+ * them (version + insert in one transaction). Every item must end up with versions 1..n, no gaps
+ * or duplicates, and rolled-back inserts must not burn a version.
+ *
+ * <pre>
+ * docker compose -f infra/docker-compose.yml up -d
+ * ./mvnw test -Dtest=ReceiptVersionConcurrencyTest -Dkeepkind.bench=true \
+ *     [-Dkeepkind.bench.threads=32] [-Dkeepkind.bench.receipts=2000] [-Dkeepkind.bench.jdbcUrl=jdbc:postgresql://localhost:5432/keepkind]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "keepkind.bench", matches = "true")
+@SpringBootTest
+class ReceiptVersionConcurrencyTest {
+
+    private static final int ITEMS = 3;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("keepkind.ollama.warmup.enabled", () -> false);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> Integer.getInteger("keepkind.bench.threads", 32) + 2);
+        String url = System.getProperty("keepkind.bench.jdbcUrl");
+        if (url != null) registry.add("spring.datasource.url", () -> url);
+    }
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Autowired
+    TransactionTemplate tx;
+
+    @Autowired
+    ReceiptVersions versions;
+
+    @Test
+    void concurrentReceiptsGetConsecutiveVersions() throws Exception {
+        int threads = Integer.getInteger("keepkind.bench.threads", 32);
+        int receipts = Integer.getInteger("keepkind.bench.receipts", 2000);
+
+        long[] items = new long[ITEMS];
+        for (int i = 0; i < ITEMS; i++) {
+            items[i] = jdbc.queryForObject(
+                    "INSERT INTO items(name, category) VALUES (?, 'appliance') RETURNING id", Long.class, "version stress " + i);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>(receipts);
+        try {
+            for (int n = 0; n < receipts; n++) {
+                long itemId = items[n % ITEMS];
+                boolean rollback = n % 10 == 9;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return tx.execute(status -> {
+                        int v = versions.next(itemId);
+                        jdbc.update("INSERT INTO receipts(item_id, receipt_version, question) VALUES (?, ?, 'stress')", itemId, v);
+                        if (rollback) status.setRollbackOnly();
+                        return !rollback;
+                    });
+                }));
+            }
+            long t0 = System.nanoTime();
+            start.countDown();
+            int committed = 0;
+            for (Future<Boolean> f : results) {
+                if (f.get()) committed++;
+            }
+            double seconds = (System.nanoTime() - t0) / 1e9;
+            System.out.printf("%d receipts (%d committed) on %d items with %d threads: %.0f/s%n",
+                    receipts, committed, ITEMS, threads, receipts / seconds);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (long itemId : items) {
+            List<Integer> got = jdbc.queryForList(
+                    "SELECT receipt_version FROM receipts WHERE item_id = ? ORDER BY receipt_version", Integer.class, itemId);
+            for (int i = 0; i < got.size(); i++) {
+                assertEquals(i + 1, got.get(i), "item " + itemId + " versions " + got);
+            }
+            Integer last = jdbc.queryForObject("SELECT last_version FROM receipt_counters WHERE item_id = ?", Integer.class, itemId);
+            assertEquals(got.size(), last);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.keepkind;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void stop() {
+        pool.shutdownNow();
+    }
+
+    /** Starts CALLERS calls for one key and returns once all but the first are waiting on it. */
+    private List<Future<Object>> callTogether(SingleFlight<Object> flight, Supplier<Object> work) throws InterruptedException {
+        List<Future<Object>> calls = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) calls.add(pool.submit(() -> flight.call("key", work)));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((long) flight.stats().get("shared") < CALLERS - 1 && System.nanoTime() < deadline) Thread.sleep(5);
+        assertEquals((long) CALLERS - 1, flight.stats().get("shared"));
+        return calls;
+    }
+
+    @Test
+    void concurrentCallersShareOneResult() throws Exception {
+        SingleFlight<Object> flight = new SingleFlight<>("test");
+        CountDownLatch release = new CountDownLatch(1);
+        Object result = new Object();
+
+        List<Future<Object>> calls = callTogether(flight, () -> {
+            await(release);
+            return result;
+        });
+        release.countDown();
+
+        for (Future<Object> f : calls) assertSame(result, f.get(5, TimeUnit.SECONDS));
+        assertEquals(1L, flight.stats().get("executed"));
+        assertEquals(0, flight.stats().get("inFlight"));
+    }
+
+    @Test
+    void concurrentCallersShareOneException() throws Exception {
+        SingleFlight<Object> flight = new SingleFlight<>("test");
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("ollama down");
+
+        List<Future<Object>> calls = callTogether(flight, () -> {
+            await(release);
+            throw failure;
+        });
+        release.countDown();
+
+        for (Future<Object> f : calls) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(5, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(1L, flight.stats().get("executed"));
+        assertEquals(0, flight.stats().get("inFlight"));
+    }
+
+    @Test
+    void keyIsClearedOnceTheWorkFinishes() {
+        SingleFlight<Object> flight = new SingleFlight<>("test");
+
+        assertEquals("first", flight.call("key", () -> "first"));
+        assertEquals("second", flight.call("key", () -> "second"));
+        assertThrows(IllegalStateException.class, () -> flight.call("key", () -> {
+            throw new IllegalStateException("failed");
+        }));
+        assertEquals("third", flight.call("key", () -> "third"));
+
+        assertEquals(4L, flight.stats().get("executed"));
+        assertEquals(0L, flight.stats().get("shared"));
+        assertEquals(0, flight.stats().get("inFlight"));
+    }
+
+    @Test
+    void differentKeysRunSeparately() throws Exception {
+        SingleFlight<Object> flight = new SingleFlight<>("test");
+        CountDownLatch bothRunning = new CountDownLatch(2);
+
+        Future<Object> a = pool.submit(() -> flight.call("a", () -> {
+            bothRunning.countDown();
+            await(bothRunning);
+            return "a";
+        }));
+        Future<Object> b = pool.submit(() -> flight.call("b", () -> {
+            bothRunning.countDown();
+            await(bothRunning);
+            return "b";
+        }));
+
+        assertEquals("a", a.get(5, TimeUnit.SECONDS));
+        assertEquals("b", b.get(5, TimeUnit.SECONDS));
+        assertEquals(2L, flight.stats().get("executed"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS), "latch not released");
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
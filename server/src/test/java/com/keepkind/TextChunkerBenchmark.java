@@ -0,0 +1,147 @@
+package com.keepkind;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput and allocation of {@link TextChunker} on 1, 10 and 100 MB of synthetic manual text,
+ * read from a generating Reader so the input itself is never on the heap. The previous
+ * replaceAll + substring chunker is measured on 1 and 10 MB for comparison (at 100 MB it needs
+ * several copies of the document in memory).
+ *
+ * <pre>
+ * ./mvnw test -Dtest=TextChunkerBenchmark -Dkeepkind.bench=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "keepkind.bench", matches = "true")
+class TextChunkerBenchmark {
+
+    private static final int MB = 1024 * 1024;
+
+    @Test
+    void chunkLargeInputs() throws Exception {
+        for (int mb : new int[]{1, 10, 100}) {
+            // warm-up on the same size, then measure
+            run("streaming", mb, false);
+            Result streaming = run("streaming", mb, false);
+            print(mb, streaming);
+            assertTrue(streaming.maxChunkLength <= 800, "chunk longer than chunkSize");
+
+            if (mb <= 10) {
+                run("legacy", mb, true);
+                print(mb, run("legacy", mb, true));
+            }
+        }
+    }
+
+    private record Result(String name, long chunks, long nanos, long allocatedBytes, int maxChunkLength) {}
+
+    private static Result run(String name, int mb, boolean legacy) throws Exception {
+        long[] chunks = {0};
+        int[] maxLen = {0};
+        long allocBefore = allocatedBytes();
+        long t0 = System.nanoTime();
+        if (legacy) {
+            StringBuilder sb = new StringBuilder(mb * MB);
+            try (Reader in = new ManualText((long) mb * MB)) {
+                char[] buf = new char[8192];
+                for (int n; (n = in.read(buf)) != -1; ) sb.append(buf, 0, n);
+            }
+            for (String c : legacyChunk(sb.toString(), 800, 120)) {
+                chunks[0]++;
+                maxLen[0] = Math.max(maxLen[0], c.length());
+            }
+        } else {
+            try (Reader in = new ManualText((long) mb * MB)) {
+                new TextChunker(800, 120).chunk(in, c -> {
+                    chunks[0]++;
+                    maxLen[0] = Math.max(maxLen[0], c.length());
+                });
+            }
+        }
+        long nanos = System.nanoTime() - t0;
+        return new Result(name, chunks[0], nanos, allocatedBytes() - allocBefore, maxLen[0]);
+    }
+
+    private static void print(int mb, Result r) {
+        double seconds = r.nanos / 1e9;
+        System.out.printf("%4d MB %-9s chunks=%,9d time=%7.0f ms  %6.1f MB/s  allocated=%,7d MB (%.1fx input)%n",
+                mb, r.name, r.chunks, r.nanos / 1e6, mb / seconds,
+                r.allocatedBytes / MB, (double) r.allocatedBytes / ((long) mb * MB));
+    }
+
+    /** The chunker ChunkService used before TextChunker. */
+    private static List<String> legacyChunk(String text, int chunkSize, int overlap) {
+        String t = text.trim().replaceAll("\\s+", " ");
+        List<String> out = new ArrayList<>();
+        int start = 0;
+        while (start < t.length()) {
+            int end = Math.min(t.length(), start + chunkSize);
+            out.add(t.substring(start, end));
+            if (end == t.length()) break;
+            start = Math.max(0, end - overlap);
+        }
+        return out;
+    }
+
+    private static long allocatedBytes() {
+        var bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /** Deterministic manual-like text: sentences, irregular whitespace, paragraph breaks, part numbers. */
+    private static final class ManualText extends Reader {
+        private static final String[] WORDS = {
+                "replace", "the", "filter", "every", "months", "check", "gasket", "torque", "to", "Nm",
+                "model", "XR-200", "do", "not", "overtighten", "warranty", "service", "interval", "clean",
+                "with", "a", "dry", "cloth", "unplug", "before", "opening", "housing", "part", "no.", "A-4471"
+        };
+
+        private final Random rnd = new Random(7);
+        private long remaining;
+        private String pending = "";
+        private int pos;
+
+        ManualText(long chars) {
+            this.remaining = chars;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (remaining <= 0) return -1;
+            int n = 0;
+            while (n < len && remaining > 0) {
+                if (pos == pending.length()) {
+                    pending = nextSentence();
+                    pos = 0;
+                }
+                cbuf[off + n++] = pending.charAt(pos++);
+                remaining--;
+            }
+            return n;
+        }
+
+        private String nextSentence() {
+            StringBuilder sb = new StringBuilder(120);
+            int words = 6 + rnd.nextInt(18);
+            for (int i = 0; i < words; i++) {
+                if (i > 0) sb.append(rnd.nextInt(10) == 0 ? "  \t" : " ");
+                sb.append(WORDS[rnd.nextInt(WORDS.length)]);
+            }
+            sb.append(rnd.nextInt(8) == 0 ? ".\n\n" : ". ");
+            return sb.toString();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.keepkind;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextChunkerTest {
+
+    private static List<String> chunks(int chunkSize, int overlap, String text) {
+        List<String> out = new ArrayList<>();
+        new TextChunker(chunkSize, overlap).chunk(text, out::add);
+        return out;
+    }
+
+    @Test
+    void inputShorterThanOneChunkIsOneNormalizedChunk() {
+        assertEquals(List.of("hello world"), chunks(40, 10, " hello \t world \n"));
+    }
+
+    @Test
+    void blankInputHasNoChunks() {
+        assertEquals(List.of(), chunks(40, 10, ""));
+        assertEquals(List.of(), chunks(40, 10, "   \n\n \t"));
+    }
+
+    @Test
+    void crlfIsNormalizedLikeLf() {
+        assertEquals(List.of("one two\nthree"), chunks(40, 10, "one\r\ntwo\r\n\r\nthree"));
+        assertEquals(chunks(40, 10, "one\ntwo\n\nthree"), chunks(40, 10, "one\r\ntwo\r\n\r\nthree"));
+    }
+
+    @Test
+    void inputWithoutWhitespaceIsCutAtChunkSizeWithoutOverlap() {
+        // no word start to begin an overlap at, so nothing is repeated
+        assertEquals(List.of("a".repeat(10), "a".repeat(10), "a".repeat(5)), chunks(10, 3, "a".repeat(25)));
+    }
+
+    @Test
+    void prefersParagraphBreakThenSentenceEndThenSpace() {
+        assertEquals("aaaa bbbb cccc dddd eee",
+                chunks(40, 8, "aaaa bbbb cccc dddd eee\n\nffff gggg. hhhh iiii jjjj kkkk").get(0));
+        assertEquals("aaaa bbbb cccc dddd eeee.",
+                chunks(40, 8, "aaaa bbbb cccc dddd eeee. ffff gggg hhhh iiii jjjj").get(0));
+        assertEquals("aaaa bbbb cccc dddd eeee ffff gggg hhhh",
+                chunks(40, 8, "aaaa bbbb cccc dddd eeee ffff gggg hhhh iiii jjjj").get(0));
+    }
+
+    @Test
+    void overlapStartsAtWordOrSentenceBoundary() {
+        assertEquals(List.of("aaaa bbbb cccc dddd eeee ffff gggg hhhh", "ffff gggg hhhh iiii jjjj"),
+                chunks(40, 15, "aaaa bbbb cccc dddd eeee ffff gggg hhhh iiii jjjj"));
+        // "Gg hh." starts a sentence inside the overlap window, so the next chunk starts there
+        assertEquals(List.of("aaaa bbbb cccc dddd eeee ffff. Gg hh.", "Gg hh. Iiii jjjj kkkk llll"),
+                chunks(40, 10, "aaaa bbbb cccc dddd eeee ffff. Gg hh. Iiii jjjj kkkk llll"));
+    }
+
+    @Test
+    void tailShorterThanOverlapIsEmittedOnce() {
+        assertEquals(List.of("aaaa bbbb cccc dddd", "dddd eeee f"), chunks(20, 8, "aaaa bbbb cccc dddd eeee f"));
+        assertEquals(List.of("abcdefghijklmnopq rs", "rs tu"), chunks(20, 8, "abcdefghijklmnopq rs tu"));
+    }
+
+    @Test
+    void readerAndCharSequenceAgree() throws IOException {
+        String text = randomText(new Random(7), 5_000);
+        List<String> fromReader = new ArrayList<>();
+        new TextChunker(200, 40).chunk(new StringReader(text), fromReader::add);
+        assertEquals(chunks(200, 40, text), fromReader);
+    }
+
+    @Test
+    void chunksCoverTheNormalizedTextInOrder() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            String text = randomText(random, 500 + random.nextInt(5_000));
+            int chunkSize = 20 + random.nextInt(300);
+            int overlap = random.nextInt(chunkSize / 2);
+            String normalized = normalize(text);
+
+            List<String> chunks = chunks(chunkSize, overlap, text);
+            int prevStart = -1;
+            int prevEnd = 0;
+            for (String c : chunks) {
+                assertFalse(c.isBlank());
+                assertTrue(c.length() <= chunkSize, "chunk longer than " + chunkSize + ": " + c.length());
+                assertEquals(c.strip(), c);
+
+                int start = normalized.indexOf(c, prevStart + 1);
+                assertTrue(start >= 0, "chunk not found in order: " + c);
+                assertTrue(start <= prevEnd + 1, "gap before chunk at " + start);
+                assertTrue(start + c.length() > prevEnd, "chunk adds no new text at " + start);
+                assertTrue(start == 0 || isSeparator(normalized.charAt(start - 1)) || start == prevEnd,
+                        "chunk starts mid-word at " + start);
+                prevStart = start;
+                prevEnd = start + c.length();
+            }
+            assertEquals(normalized.length(), prevEnd);
+        }
+    }
+
+    @Test
+    void rejectsOverlapOfHalfAChunkOrMore() {
+        assertThrows(IllegalArgumentException.class, () -> new TextChunker(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TextChunker(40, 20));
+        assertThrows(IllegalArgumentException.class, () -> new TextChunker(40, -1));
+    }
+
+    private static final String[] WORDS = {"the", "pump", "filter", "should", "be", "cleaned", "monthly.",
+            "Replace", "the", "seal", "(part", "7B)", "if", "it", "leaks!", "Warranty:", "two", "years?",
+            "supercalifragilisticexpialidocious"};
+    private static final String[] GAPS = {" ", " ", " ", "  ", "\t", "\n", "\r\n", "\n\n", " \r\n \r\n"};
+
+    private static String randomText(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < length) {
+            sb.append(GAPS[random.nextInt(GAPS.length)]).append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    /** What the chunker's whitespace handling should produce, computed independently. */
+    private static String normalize(String text) {
+        Matcher m = Pattern.compile("\\s+").matcher(text.strip());
+        StringBuilder sb = new StringBuilder();
+        while (m.find()) {
+            long newlines = m.group().chars().filter(c -> c == '\n').count();
+            m.appendReplacement(sb, newlines >= 2 ? "\n" : " ");
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\n';
+    }
+}